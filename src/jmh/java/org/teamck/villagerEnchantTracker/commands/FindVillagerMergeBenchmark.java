@@ -0,0 +1,79 @@
+package org.teamck.villagerEnchantTracker.commands;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.teamck.villagerEnchantTracker.core.Trade;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merging /findvillager's database and nearby results: the hash join in {@link FindVillagerCommand#merge}
+ * against the nested-loop dedup it replaced. Half of the nearby trades duplicate a database trade.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FindVillagerMergeBenchmark {
+    @Param({"100", "1000", "5000"})
+    int size;
+
+    List<Trade> dbTrades;
+    List<Trade> nearbyTrades;
+
+    @Setup
+    public void createTrades() {
+        Random random = new Random(42);
+        dbTrades = new ArrayList<>(size);
+        nearbyTrades = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            dbTrades.add(trade(UUID.randomUUID(), random));
+        }
+        for (int i = 0; i < size; i++) {
+            Trade trade = i % 2 == 0 ? dbTrades.get(random.nextInt(size)) : trade(UUID.randomUUID(), random);
+            // A fresh instance, as the live scan builds its own
+            nearbyTrades.add(new Trade(0, trade.getVillagerId(), trade.getEnchantId(), trade.getLevel(), trade.getPrice(),
+                    "", null, trade.getWorldName(), trade.getX(), trade.getY(), trade.getZ()));
+        }
+    }
+
+    @Benchmark
+    public Collection<Trade> hashJoin() {
+        return FindVillagerCommand.merge(dbTrades, nearbyTrades);
+    }
+
+    @Benchmark
+    public Collection<Trade> nestedLoop() {
+        List<Trade> trades = new ArrayList<>(dbTrades);
+        for (Trade nearbyTrade : nearbyTrades) {
+            boolean isDuplicate = false;
+            for (Trade dbTrade : dbTrades) {
+                if (dbTrade.getVillagerId().equals(nearbyTrade.getVillagerId()) &&
+                    dbTrade.getEnchantId().equals(nearbyTrade.getEnchantId()) &&
+                    dbTrade.getLevel() == nearbyTrade.getLevel()) {
+                    isDuplicate = true;
+                    break;
+                }
+            }
+            if (!isDuplicate) {
+                trades.add(nearbyTrade);
+            }
+        }
+        return trades;
+    }
+
+    private static Trade trade(UUID villagerId, Random random) {
+        return new Trade(0, villagerId, "minecraft:mending", 1, 10 + random.nextInt(50), null, null,
+                "world", random.nextInt(2000) - 1000, 64, random.nextInt(2000) - 1000);
+    }
+}
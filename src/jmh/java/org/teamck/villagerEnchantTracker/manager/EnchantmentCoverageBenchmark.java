@@ -0,0 +1,87 @@
+package org.teamck.villagerEnchantTracker.manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.teamck.villagerEnchantTracker.manager.EnchantmentManager.EnchantmentInfo;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The EVT "missing max-level enchants" step: {@link EnchantmentCoverage} bitsets against the nested
+ * max-enchant x offer loop it replaced. Each librarian sells one book at a random enchant and level.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnchantmentCoverageBenchmark {
+    private static final int ENCHANTMENTS = 40;
+
+    @Param({"10", "100", "1000"})
+    int librarians;
+
+    EnchantmentRegistry registry;
+    List<EnchantmentInfo> offers;
+    Set<EnchantmentInfo> existingTrades;
+    Set<EnchantmentInfo> allMaxEnchants;
+
+    @Setup
+    public void createOffers() {
+        Random random = new Random(42);
+        Map<String, Integer> maxLevels = new HashMap<>();
+        for (int i = 0; i < ENCHANTMENTS; i++) {
+            maxLevels.put("enchant_" + i, 1 + random.nextInt(5));
+        }
+        registry = EnchantmentRegistry.ofMaxLevels(maxLevels);
+
+        allMaxEnchants = new HashSet<>();
+        for (int ordinal = 0; ordinal < registry.size(); ordinal++) {
+            allMaxEnchants.add(registry.maxLevelInfo(ordinal));
+        }
+
+        existingTrades = new HashSet<>();
+        for (int i = 0; i < librarians; i++) {
+            EnchantmentRegistry.Entry entry = registry.get(random.nextInt(registry.size()));
+            existingTrades.add(new EnchantmentInfo(entry.id(), 1 + random.nextInt(entry.maxLevel()), 10 + random.nextInt(50)));
+        }
+        offers = List.copyOf(existingTrades);
+    }
+
+    @Benchmark
+    public Set<EnchantmentInfo> bitsets() {
+        EnchantmentCoverage coverage = new EnchantmentCoverage(registry);
+        for (EnchantmentInfo offer : offers) {
+            coverage.add(offer.getId(), offer.getLevel());
+        }
+        return coverage.missingMaxLevels();
+    }
+
+    @Benchmark
+    public Set<EnchantmentInfo> nestedLoop() {
+        Set<EnchantmentInfo> newEnchants = new HashSet<>();
+        for (EnchantmentInfo maxEnchant : allMaxEnchants) {
+            boolean shouldAdd = true;
+            for (EnchantmentInfo existing : existingTrades) {
+                if (existing.canReplace(maxEnchant)) {
+                    shouldAdd = false;
+                    break;
+                }
+            }
+            if (shouldAdd) {
+                newEnchants.add(maxEnchant);
+            }
+        }
+        return newEnchants;
+    }
+}
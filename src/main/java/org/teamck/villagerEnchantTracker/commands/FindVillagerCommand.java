@@ -1,7 +1,6 @@
 package org.teamck.villagerEnchantTracker.commands;
 
 import org.bukkit.Location;
-import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -9,67 +8,67 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.MerchantRecipe;
-import org.bukkit.inventory.meta.EnchantmentStorageMeta;
 import org.bukkit.plugin.java.JavaPlugin;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.TextComponent;
+import org.teamck.villagerEnchantTracker.core.EnchantedBookOffers;
 import org.teamck.villagerEnchantTracker.core.Trade;
 import org.teamck.villagerEnchantTracker.core.VillagerRegion;
-import org.teamck.villagerEnchantTracker.database.Database;
+import org.teamck.villagerEnchantTracker.database.AsyncDatabase;
+import org.teamck.villagerEnchantTracker.database.TradeQuery;
 import org.teamck.villagerEnchantTracker.manager.MessageManager;
 import org.teamck.villagerEnchantTracker.manager.ParticleManager;
 import org.teamck.villagerEnchantTracker.manager.EnchantmentManager;
+import org.teamck.villagerEnchantTracker.manager.VillagerRegistry;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 public class FindVillagerCommand implements CommandExecutor, TabCompleter {
     private final MessageManager messageManager;
     private final JavaPlugin plugin;
     private final ParticleManager particleManager;
-    private final Database db;
+    private final AsyncDatabase db;
+    private final VillagerRegistry villagerRegistry;
     private static final double DEFAULT_RADIUS = 50.0;
 
-    public FindVillagerCommand(MessageManager messageManager, JavaPlugin plugin, Database db) {
+    public FindVillagerCommand(MessageManager messageManager, JavaPlugin plugin, AsyncDatabase db, VillagerRegistry villagerRegistry) {
         this.messageManager = messageManager;
         this.plugin = plugin;
         this.particleManager = new ParticleManager(plugin);
         this.db = db;
+        this.villagerRegistry = villagerRegistry;
     }
 
     public List<Trade> searchNearbyVillagerTrades(Player player, String enchantId, double radius) {
         final String normalizedEnchantId = EnchantmentManager.normalizeEnchantmentId(enchantId);
+        // Recipes carry bare keys, so compare against the key instead of normalizing every offer
+        final String wantedKey = normalizedEnchantId.substring("minecraft:".length());
         List<Trade> trades = new ArrayList<>();
+        Map<UUID, Location> seenPositions = new HashMap<>();
         for (Entity entity : player.getNearbyEntities(radius, radius, radius)) {
             if (entity instanceof Villager villager) {
-                for (MerchantRecipe recipe : villager.getRecipes()) {
-                    ItemStack result = recipe.getResult();
-                    if (result.getType() == Material.ENCHANTED_BOOK && result.getItemMeta() instanceof EnchantmentStorageMeta meta) {
-                        meta.getStoredEnchants().forEach((enchant, level) -> {
-                            if (EnchantmentManager.normalizeEnchantmentId("minecraft:" + enchant.getKey().getKey()).equals(normalizedEnchantId)) {
-                                int price = recipe.getIngredients().stream()
-                                        .filter(i -> i.getType() == Material.EMERALD)
-                                        .mapToInt(ItemStack::getAmount)
-                                        .sum();
-                                
-                                // Check if the villager is in any region
-                                String regionName = null;
-                                for (VillagerRegion region : db.listRegions()) {
-                                    if (region.contains(villager.getLocation())) {
-                                        regionName = region.getName();
-                                        break;
-                                    }
-                                }
-                                trades.add(new Trade(villager.getUniqueId().toString(), normalizedEnchantId, level, price, "", regionName));
-                            }
-                        });
+                Location villagerLoc = villager.getLocation();
+                seenPositions.put(villager.getUniqueId(), villagerLoc);
+                EnchantedBookOffers.extract(villager, (enchantKey, level, price, uses, maxUses) -> {
+                    if (enchantKey.equals(wantedKey)) {
+                        // Check if the villager is in any region
+                        VillagerRegion region = db.getDatabase().findRegion(villagerLoc);
+                        String regionName = region != null ? region.getName() : null;
+                        trades.add(new Trade(villager.getUniqueId(), normalizedEnchantId, level, price, "", regionName, villagerLoc));
                     }
-                }
+                });
             }
         }
+        // Refresh the stored position of every villager we just saw
+        db.updateVillagerPositions(seenPositions);
         return trades;
     }
 
@@ -99,46 +98,43 @@ public class FindVillagerCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        // Search both database and nearby villagers
-        List<Trade> trades = new ArrayList<>();
-        List<Trade> dbTrades = db.searchTrades(enchantId);
+        // Closest stored sellers from any distance, plus unrecorded villagers nearby. The nearby villagers are read
+        // here, on the thread that owns the player; the results are shown back on that same thread
+        final String searchedEnchantId = enchantId;
+        int maxResults = plugin.getConfig().getInt("findvillager.max-results", 10);
+        TradeQuery.Sort sort = parseSort(plugin.getConfig().getString("findvillager.sort", "distance"));
         List<Trade> nearbyTrades = searchNearbyVillagerTrades(player, enchantId, DEFAULT_RADIUS);
-        
-        // Add database trades first
-        trades.addAll(dbTrades);
-        
-        // Add nearby trades only if they are not already in the database trades
-        for (Trade nearbyTrade : nearbyTrades) {
-            boolean isDuplicate = false;
-            for (Trade dbTrade : dbTrades) {
-                if (dbTrade.getVillagerUuid().equals(nearbyTrade.getVillagerUuid()) && 
-                    dbTrade.getEnchantId().equals(nearbyTrade.getEnchantId()) && 
-                    dbTrade.getLevel() == nearbyTrade.getLevel()) {
-                    isDuplicate = true;
-                    break;
-                }
-            }
-            if (!isDuplicate) {
-                trades.add(nearbyTrade);
-            }
-        }
+        // The database ranks every stored seller in the world by the same order before cutting to maxResults
+        db.thenSync(player, db.findBestTrades(enchantId, player.getLocation(), sort, maxResults),
+                dbTrades -> showResults(player, searchedEnchantId, dbTrades, nearbyTrades, sort, maxResults));
+        return true;
+    }
 
-        if (trades.isEmpty()) {
+    private void showResults(Player player, String enchantId, List<Trade> dbTrades, List<Trade> nearbyTrades,
+                             TradeQuery.Sort sort, int maxResults) {
+        Collection<Trade> merged = merge(dbTrades, nearbyTrades);
+        if (merged.isEmpty()) {
             player.sendMessage(messageManager.getMessage("no_found_trades", player));
-            return true;
+            return;
         }
 
+        List<Trade> ranked = rank(merged, player.getLocation(), sort, maxResults);
+
+        // Same for every line of this result
+        String localName = messageManager.getEnchantName(enchantId, messageManager.getBaseLanguageCode(player.getLocale()));
+        String infoFormat = messageManager.getMessage("found_trade_info", player);
+        String noLocationFormat = messageManager.getMessage("found_trade_info_no_location", player);
+
         // Cancel all existing particles before showing new results
         particleManager.cancelAllParticles(player);
-        for (int i = 0; i < trades.size(); i++) {
-            Trade trade = trades.get(i);
-            String localName = messageManager.getEnchantName(enchantId, messageManager.getBaseLanguageCode(player.getLocale()));
-            Location loc = trade.getLocation();
+        for (int i = 0; i < ranked.size(); i++) {
+            Trade trade = ranked.get(i);
+            Location loc = villagerRegistry.locate(trade);
             if (loc == null) {
-                player.sendMessage(String.format(messageManager.getMessage("found_trade_info_no_location", player), i + 1, localName, trade.getLevel(), trade.getPrice()));
+                player.sendMessage(String.format(noLocationFormat, i + 1, localName, trade.getLevel(), trade.getPrice()));
                 continue;
             }
-            String message = String.format(messageManager.getMessage("found_trade_info", player),
+            String message = String.format(infoFormat,
                     i + 1, // 거래 번호 (1부터 시작)
                     localName, trade.getLevel(),
                     trade.getPrice(),
@@ -147,14 +143,73 @@ public class FindVillagerCommand implements CommandExecutor, TabCompleter {
             
             // Create clickable message using villager_uuid
             TextComponent textComponent = new TextComponent(message);
-            textComponent.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/vet particle " + trade.getVillagerUuid()));
+            textComponent.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/vet particle " + trade.getVillagerId()));
             player.spigot().sendMessage(textComponent);
             
             // Spawn particles immediately for search results. If there are multiple results, they will be spawned simultaneously.
             particleManager.spawnParticles(loc, player, false);
         }
+    }
 
-        return true;
+    /**
+     * Hash join on (villager, enchant, level): database trades win, nearby ones only fill the gaps.
+     * Package-private so the benchmark in src/jmh can call it without a server.
+     */
+    static Collection<Trade> merge(List<Trade> dbTrades, List<Trade> nearbyTrades) {
+        Map<TradeKey, Trade> merged = new LinkedHashMap<>(dbTrades.size() + nearbyTrades.size());
+        for (Trade trade : dbTrades) {
+            merged.put(TradeKey.of(trade), trade);
+        }
+        for (Trade trade : nearbyTrades) {
+            merged.putIfAbsent(TradeKey.of(trade), trade);
+        }
+        return merged.values();
+    }
+
+    /**
+     * The first {@code limit} trades in {@code sort} order from {@code origin}.
+     */
+    private static List<Trade> rank(Collection<Trade> trades, Location origin, TradeQuery.Sort sort, int limit) {
+        // Distances are computed once per trade instead of on every comparison
+        List<Ranked> ranked = new ArrayList<>(trades.size());
+        for (Trade trade : trades) {
+            ranked.add(new Ranked(trade, trade.distanceSquared(origin)));
+        }
+        ranked.sort(ranking(sort));
+        List<Trade> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            result.add(ranked.get(i).trade());
+        }
+        return result;
+    }
+
+    private record TradeKey(UUID villagerId, String enchantId, int level) {
+        static TradeKey of(Trade trade) {
+            return new TradeKey(trade.getVillagerId(), trade.getEnchantId(), trade.getLevel());
+        }
+    }
+
+    private record Ranked(Trade trade, double distanceSquared) {}
+
+    // findvillager.sort: distance (default), price or level
+    private static TradeQuery.Sort parseSort(String sort) {
+        return switch (sort.toLowerCase()) {
+            case "price" -> TradeQuery.Sort.PRICE;
+            case "level" -> TradeQuery.Sort.LEVEL;
+            default -> TradeQuery.Sort.DISTANCE;
+        };
+    }
+
+    // Ties fall through to the other two keys, the same order the database ranks by
+    private static Comparator<Ranked> ranking(TradeQuery.Sort sort) {
+        Comparator<Ranked> byDistance = Comparator.comparingDouble(Ranked::distanceSquared);
+        Comparator<Ranked> byPrice = Comparator.comparingInt(r -> r.trade().getPrice());
+        Comparator<Ranked> byLevel = Comparator.comparingInt((Ranked r) -> r.trade().getLevel()).reversed();
+        return switch (sort) {
+            case PRICE -> byPrice.thenComparing(byLevel).thenComparing(byDistance);
+            case LEVEL -> byLevel.thenComparing(byPrice).thenComparing(byDistance);
+            default -> byDistance.thenComparing(byPrice).thenComparing(byLevel);
+        };
     }
 
     @Override
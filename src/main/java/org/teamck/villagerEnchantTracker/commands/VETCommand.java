@@ -8,13 +8,11 @@ import org.bukkit.entity.Player;
 import org.bukkit.Location;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.teamck.villagerEnchantTracker.manager.ParticleManager;
+import org.teamck.villagerEnchantTracker.manager.VillagerRegistry;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Entity;
-import org.bukkit.entity.Villager;
 
 public class VETCommand implements CommandExecutor, TabCompleter {
     private final JavaPlugin plugin;
@@ -22,13 +20,16 @@ public class VETCommand implements CommandExecutor, TabCompleter {
     private final VETRegionCommand regionCommand;
     private final VETEVTCommand evtCommand;
     private final ParticleManager particleManager;
+    private final VillagerRegistry villagerRegistry;
 
-    public VETCommand(JavaPlugin plugin, VETTradeCommand tradeCommand, VETRegionCommand regionCommand, VETEVTCommand evtCommand) {
+    public VETCommand(JavaPlugin plugin, VETTradeCommand tradeCommand, VETRegionCommand regionCommand, VETEVTCommand evtCommand,
+                      VillagerRegistry villagerRegistry) {
         this.plugin = plugin;
         this.tradeCommand = tradeCommand;
         this.regionCommand = regionCommand;
         this.evtCommand = evtCommand;
         this.particleManager = new ParticleManager(plugin);
+        this.villagerRegistry = villagerRegistry;
     }
 
     @Override
@@ -63,9 +64,8 @@ public class VETCommand implements CommandExecutor, TabCompleter {
                     particleManager.spawnParticles(loc, player, true);
                 } else if (args.length == 2) {
                     UUID villagerUuid = UUID.fromString(args[1]);
-                    Entity entity = Bukkit.getEntity(villagerUuid);
-                    if (entity instanceof Villager villager) {
-                        Location loc = villager.getLocation();
+                    Location loc = villagerRegistry.getLocation(villagerUuid);
+                    if (loc != null) {
                         particleManager.spawnParticles(loc, player, true);
                     } else {
                         player.sendMessage("§cVillager not found with UUID: " + args[1]);
@@ -5,28 +5,41 @@ import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
 import org.teamck.villagerEnchantTracker.core.VillagerEnchantTracker;
 import org.teamck.villagerEnchantTracker.core.VillagerRegion;
-import org.teamck.villagerEnchantTracker.database.Database;
+import org.teamck.villagerEnchantTracker.core.VillagerSnapshot;
+import org.teamck.villagerEnchantTracker.database.AsyncDatabase;
+import org.teamck.villagerEnchantTracker.database.RegionCoverage;
+import org.teamck.villagerEnchantTracker.manager.EnchantmentCoverage;
 import org.teamck.villagerEnchantTracker.manager.EnchantmentManager;
 import org.teamck.villagerEnchantTracker.manager.EnchantmentManager.EnchantmentInfo;
+import org.teamck.villagerEnchantTracker.manager.EnchantmentRegistry;
 import org.teamck.villagerEnchantTracker.manager.MessageManager;
+import org.teamck.villagerEnchantTracker.manager.RegionScanner;
 import org.teamck.villagerEnchantTracker.ui.EnchantmentTUI;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 public class VETEVTCommand {
     private final VillagerEnchantTracker plugin;
-    private final Database database;
+    private final AsyncDatabase database;
     private final MessageManager messageManager;
     private final Logger logger;
-    private final Map<UUID, EnchantmentTUI> activeTUIs = new HashMap<>();
+    private final RegionScanner regionScanner;
+    private final Executor worker;
+    // Written and read on each player's own thread, which on Folia moves between regions with the player
+    private final Map<UUID, EnchantmentTUI> activeTUIs = new ConcurrentHashMap<>();
 
-    public VETEVTCommand(VillagerEnchantTracker plugin, Database database) {
+    public VETEVTCommand(VillagerEnchantTracker plugin, AsyncDatabase database, Executor worker) {
         this.plugin = plugin;
         this.database = database;
+        this.worker = worker;
         this.messageManager = MessageManager.getInstance();
         this.logger = plugin.getLogger();
+        this.regionScanner = new RegionScanner(plugin, messageManager);
     }
 
     public boolean executeCommand(CommandSender sender, String[] args) {
@@ -70,7 +83,11 @@ public class VETEVTCommand {
         return switch (args.length) {
             case 1 -> getCompletions(args[0], Arrays.asList("nearby", "region", "tui"));
             case 2 -> getSecondArgumentCompletions(args[0], args[1]);
-            case 3 -> args[0].toLowerCase().equals("tui") ? getCompletions(args[2], Arrays.asList("toggle", "next", "prev", "close", "feedback")) : new ArrayList<>();
+            case 3 -> switch (args[0].toLowerCase()) {
+                case "tui" -> getCompletions(args[2], Arrays.asList("toggle", "next", "prev", "close", "feedback"));
+                case "region" -> getCompletions(args[2], List.of("--scan"));
+                default -> new ArrayList<>();
+            };
             default -> new ArrayList<>();
         };
     }
@@ -82,7 +99,7 @@ public class VETEVTCommand {
                 if ("*".startsWith(input)) {
                     completions.add("*");
                 }
-                database.listRegions().stream()
+                database.getDatabase().listRegions().stream()
                         .map(VillagerRegion::getName)
                         .filter(name -> name.toLowerCase().startsWith(input.toLowerCase()))
                         .forEach(completions::add);
@@ -117,8 +134,10 @@ public class VETEVTCommand {
             return true;
         }
 
-        EnchantmentData enchantData = collectEnchantmentData(librarians);
-        showTUI(player, enchantData);
+        // A null group name marks the nearby scan, which isn't tied to a region
+        Map<String, List<VillagerSnapshot>> librariansByGroup = new HashMap<>();
+        librariansByGroup.put(null, snapshot(librarians));
+        analyzeAsync(player, Map.of(), librariansByGroup);
         
         return true;
     }
@@ -131,25 +150,72 @@ public class VETEVTCommand {
             return true;
         }
 
-        String regionName = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
-        List<VillagerRegion> regions = getSelectedRegions(player, regionName);
-        if (regions.isEmpty()) {
-            player.sendMessage(messageManager.getMessage("no_regions", player));
-            logWarning("No regions found in database");
+        List<String> regionArgs = new ArrayList<>(Arrays.asList(args).subList(1, args.length));
+        boolean rescan = regionArgs.remove("--scan");
+        if (regionArgs.isEmpty()) {
+            player.sendMessage(messageManager.getMessage("evtintegration_region_usage", player));
             return true;
         }
 
-        EnchantmentData enchantData = collectRegionEnchantmentData(regions, player);
-        if (enchantData.totalLibrarians == 0) {
-            logDebug("No librarians found in any selected region for player %s", player.getName());
-            player.sendMessage(messageManager.getMessage("no_librarians_in_region", player));
-            return true;
-        }
+        String regionName = String.join(" ", regionArgs);
+        database.thenSync(player, getSelectedRegions(player, regionName), regions -> {
+            if (regions.isEmpty()) {
+                player.sendMessage(messageManager.getMessage("no_regions", player));
+                logWarning("No regions found in database");
+                return;
+            }
 
-        showTUI(player, enchantData);
+            if (rescan) {
+                scanRegions(player, regions);
+            } else {
+                showRegionCoverage(player, regions);
+            }
+        });
         return true;
     }
 
+    // Only chunks overlapping the regions are scanned, spread over ticks for large selections.
+    // The result is shown as is and never stored: /vet evt only needs villagerenchanttracker.use.
+    private void scanRegions(Player player, List<VillagerRegion> regions) {
+        regionScanner.scanLibrarians(player, regions).thenAccept(librariansByRegion -> {
+            Map<String, List<VillagerSnapshot>> librariansByGroup = new HashMap<>();
+            librariansByRegion.forEach((region, librarians) -> librariansByGroup.put(region.getName(), librarians));
+            if (librariansByGroup.values().stream().allMatch(List::isEmpty)) {
+                logDebug("No librarians found in any selected region for player %s", player.getName());
+                player.sendMessage(messageManager.getMessage("no_librarians_in_region", player));
+                return;
+            }
+            analyzeAsync(player, Map.of(), librariansByGroup);
+        });
+    }
+
+    // Reads the per-region coverage the database keeps up to date; no villager is looked at here.
+    // Each region nobody has recorded trades in yet is scanned live and merged with the stored ones.
+    private void showRegionCoverage(Player player, List<VillagerRegion> regions) {
+        database.thenSync(player, database.getRegionCoverage(regions), coverageByRegion -> {
+            List<VillagerRegion> unrecorded = regions.stream()
+                    .filter(region -> coverageByRegion.getOrDefault(region, List.of()).isEmpty())
+                    .toList();
+            if (unrecorded.isEmpty()) {
+                analyzeAsync(player, coverageByRegion, Map.of());
+                return;
+            }
+            if (unrecorded.size() == regions.size()) {
+                logDebug("No stored trades in any selected region for player %s, scanning instead", player.getName());
+                scanRegions(player, regions);
+                return;
+            }
+
+            logDebug("No stored trades in %d of %d selected regions for player %s, scanning those",
+                    unrecorded.size(), regions.size(), player.getName());
+            regionScanner.scanLibrarians(player, unrecorded).thenAccept(librariansByRegion -> {
+                Map<String, List<VillagerSnapshot>> librariansByGroup = new HashMap<>();
+                librariansByRegion.forEach((region, librarians) -> librariansByGroup.put(region.getName(), librarians));
+                analyzeAsync(player, coverageByRegion, librariansByGroup);
+            });
+        });
+    }
+
     private boolean handleTUICommand(Player player, String[] args) {
         logDebug("Player %s executing TUI command", player.getName());
             
@@ -195,71 +261,105 @@ public class VETEVTCommand {
                 .toList();
     }
 
-    private List<VillagerRegion> getSelectedRegions(Player player, String regionName) {
+    private CompletableFuture<List<VillagerRegion>> getSelectedRegions(Player player, String regionName) {
         if (regionName.equalsIgnoreCase("all") || regionName.equals("*")) {
             logDebug("Searching in all regions");
             return database.listRegions();
         } else {
-            VillagerRegion region = database.getRegionByName(regionName);
-            if (region == null) {
-                player.sendMessage(messageManager.getMessage("region_not_found", player));
-                logWarning("Region not found: %s", regionName);
-                return new ArrayList<>();
-            }
-            logDebug("Searching in region: %s", region.getName());
-            return Collections.singletonList(region);
+            return database.getRegionByName(regionName).thenApply(region -> {
+                if (region == null) {
+                    player.sendMessage(messageManager.getMessage("region_not_found", player));
+                    logWarning("Region not found: %s", regionName);
+                    return new ArrayList<>();
+                }
+                logDebug("Searching in region: %s", region.getName());
+                return Collections.singletonList(region);
+            });
         }
     }
 
-    private EnchantmentData collectEnchantmentData(List<Villager> librarians) {
-        Set<EnchantmentInfo> existingTrades = new HashSet<>();
+    // Main-thread half: copy only the offer data, then do the coverage math on a worker thread.
+    // The TUI is shown back on the player's thread, where its commands are handled
+    private void analyzeAsync(Player player, Map<VillagerRegion, List<RegionCoverage.Entry>> storedByRegion,
+                              Map<String, List<VillagerSnapshot>> librariansByGroup) {
+        EnchantmentRegistry registry = EnchantmentManager.getRegistry();
+        database.thenSync(player, CompletableFuture.supplyAsync(() -> collectEnchantmentData(storedByRegion, librariansByGroup, registry), worker),
+                enchantData -> showTUI(player, enchantData));
+    }
+
+    private static List<VillagerSnapshot> snapshot(List<Villager> librarians) {
+        List<VillagerSnapshot> snapshots = new ArrayList<>(librarians.size());
         for (Villager librarian : librarians) {
-            Set<EnchantmentInfo> trades = EnchantmentManager.getVillagerEnchantments(librarian);
-            existingTrades.addAll(trades);
-            logDebug("Librarian at %s has enchantments: %s",
-                    formatLocation(librarian.getLocation()), 
-                    trades.stream()
-                         .map(EnchantmentManager::formatEnchantmentInfo)
-                         .collect(Collectors.joining(", ")));
+            snapshots.add(VillagerSnapshot.capture(librarian));
         }
-        
-        Set<EnchantmentInfo> allEnchants = new HashSet<>(EnchantmentManager.getAllMaxLevelEnchantments());
-        Set<EnchantmentInfo> newEnchants = EnchantmentManager.filterNewEnchants(allEnchants, existingTrades);
-        
-        logDebug("Total enchants: %d, Existing: %d, New: %d", 
-            allEnchants.size(), existingTrades.size(), newEnchants.size());
-        
-        return new EnchantmentData(newEnchants, existingTrades, librarians.size());
+        return snapshots;
     }
 
-    private EnchantmentData collectRegionEnchantmentData(List<VillagerRegion> regions, Player player) {
-        Set<EnchantmentInfo> existingTrades = new HashSet<>();
-        int totalLibrarians = 0;
-
-        for (VillagerRegion region : regions) {
-            List<Villager> librarians = region.getLibrariansInRegion();
-            totalLibrarians += librarians.size();
-            logDebug("Region '%s': Found %d librarians", region.getName(), librarians.size());
-
-            for (Villager librarian : librarians) {
-                Set<EnchantmentInfo> trades = EnchantmentManager.getVillagerEnchantments(librarian);
-                existingTrades.addAll(trades);
-                logDebug("Librarian at %s in region '%s' has enchantments: %s",
-                        formatLocation(librarian.getLocation()), 
-                        region.getName(), 
+    // Stored coverage and live scans end up in the same shape: one existing trade per enchant,
+    // the best level on offer at the lowest price for that level
+    private EnchantmentData collectEnchantmentData(Map<VillagerRegion, List<RegionCoverage.Entry>> storedByRegion,
+                                                   Map<String, List<VillagerSnapshot>> librariansByGroup, EnchantmentRegistry registry) {
+        Map<String, EnchantmentInfo> bestByEnchant = new HashMap<>();
+        Set<UUID> librarianIds = new HashSet<>();
+
+        for (Map.Entry<VillagerRegion, List<RegionCoverage.Entry>> region : storedByRegion.entrySet()) {
+            logDebug("Region '%s': %d enchantments on sale", region.getKey().getName(), region.getValue().size());
+            for (RegionCoverage.Entry entry : region.getValue()) {
+                librarianIds.addAll(entry.villagers());
+                keepBest(bestByEnchant, new EnchantmentInfo(entry.enchantId(), entry.bestLevel(), entry.lowestPrice()));
+            }
+        }
+
+        for (Map.Entry<String, List<VillagerSnapshot>> entry : librariansByGroup.entrySet()) {
+            List<VillagerSnapshot> librarians = entry.getValue();
+            recordPositions(librarians);
+            if (entry.getKey() != null) {
+                logDebug("Region '%s': Found %d librarians", entry.getKey(), librarians.size());
+            }
+
+            for (VillagerSnapshot librarian : librarians) {
+                Set<EnchantmentInfo> trades = EnchantmentManager.getEnchantments(librarian);
+                librarianIds.add(librarian.villagerId());
+                trades.forEach(trade -> keepBest(bestByEnchant, trade));
+                logDebug("Librarian at %s%s has enchantments: %s",
+                        formatLocation(librarian.location()),
+                        entry.getKey() != null ? " in region '" + entry.getKey() + "'" : "",
                         trades.stream()
                              .map(EnchantmentManager::formatEnchantmentInfo)
                              .collect(Collectors.joining(", ")));
             }
         }
 
-        Set<EnchantmentInfo> allEnchants = new HashSet<>(EnchantmentManager.getAllMaxLevelEnchantments());
-        Set<EnchantmentInfo> newEnchants = EnchantmentManager.filterNewEnchants(allEnchants, existingTrades);
+        EnchantmentCoverage coverage = new EnchantmentCoverage(registry);
+        for (EnchantmentInfo best : bestByEnchant.values()) {
+            coverage.add(best.getId(), best.getLevel());
+        }
+        Set<EnchantmentInfo> existingTrades = new HashSet<>(bestByEnchant.values());
+        Set<EnchantmentInfo> newEnchants = coverage.missingMaxLevels();
         
         logDebug("Total enchants: %d, Existing: %d, New: %d", 
-            allEnchants.size(), existingTrades.size(), newEnchants.size());
+            registry.tradeableCount(), existingTrades.size(), newEnchants.size());
         
-        return new EnchantmentData(newEnchants, existingTrades, totalLibrarians);
+        return new EnchantmentData(newEnchants, existingTrades, librarianIds.size());
+    }
+
+    // Higher level wins; at the same level the lower price does
+    private static void keepBest(Map<String, EnchantmentInfo> bestByEnchant, EnchantmentInfo offer) {
+        bestByEnchant.merge(offer.getId(), offer, (current, candidate) ->
+                candidate.getLevel() > current.getLevel()
+                        || (candidate.getLevel() == current.getLevel() && comparePrice(candidate, current) < 0) ? candidate : current);
+    }
+
+    private static int comparePrice(EnchantmentInfo a, EnchantmentInfo b) {
+        return Comparator.nullsLast(Integer::compare).compare(a.getPrice(), b.getPrice());
+    }
+
+    private void recordPositions(List<VillagerSnapshot> librarians) {
+        Map<UUID, org.bukkit.Location> positions = new HashMap<>();
+        for (VillagerSnapshot librarian : librarians) {
+            positions.put(librarian.villagerId(), librarian.location());
+        }
+        database.updateVillagerPositions(positions);
     }
 
     private void showTUI(Player player, EnchantmentData enchantData) {
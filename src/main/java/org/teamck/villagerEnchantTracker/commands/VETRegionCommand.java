@@ -12,7 +12,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.teamck.villagerEnchantTracker.core.VillagerRegion;
-import org.teamck.villagerEnchantTracker.database.Database;
+import org.teamck.villagerEnchantTracker.database.AsyncDatabase;
 import org.teamck.villagerEnchantTracker.manager.MessageManager;
 
 import java.util.ArrayList;
@@ -21,12 +21,12 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 public class VETRegionCommand {
-    private final Database db;
+    private final AsyncDatabase db;
     private final MessageManager messageManager;
     private final JavaPlugin plugin;
     private static final List<String> SUBCOMMANDS = Arrays.asList("create", "list", "delete", "edit");
 
-    public VETRegionCommand(Database db, MessageManager messageManager, JavaPlugin plugin) {
+    public VETRegionCommand(AsyncDatabase db, MessageManager messageManager, JavaPlugin plugin) {
         this.db = db;
         this.messageManager = messageManager;
         this.plugin = plugin;
@@ -88,7 +88,7 @@ public class VETRegionCommand {
                 else if (args.length >= 4 && args.length <= 9 && args[1].toLowerCase().equals("coords")) yield List.of("<x1> <y1> <z1> <x2> <y2> <z2>");
                 else yield new ArrayList<>();
             }
-            case "delete", "edit" -> args.length == 2 ? db.listRegions().stream()
+            case "delete", "edit" -> args.length == 2 ? db.getDatabase().listRegions().stream()
                     .map(r -> String.valueOf(r.getId()))
                     .collect(Collectors.toList()) :
                     args.length == 3 && args[0].equalsIgnoreCase("edit") ? List.of("<newName>") :
@@ -126,12 +126,7 @@ public class VETRegionCommand {
                 Location maxLoc = new Location(player.getWorld(),
                         Math.max(x1, x2), Math.max(y1, y2), Math.max(z1, z2));
 
-                int regionId = db.createRegion(name, minLoc, maxLoc);
-                if (regionId != -1) {
-                    player.sendMessage(String.format(messageManager.getMessage("region_created", player), name));
-                } else {
-                    player.sendMessage(messageManager.getMessage("region_creation_failed", player));
-                }
+                createRegion(player, name, minLoc, maxLoc);
             } catch (NumberFormatException e) {
                 player.sendMessage(messageManager.getMessage("invalid_coordinates", player));
             }
@@ -153,12 +148,7 @@ public class VETRegionCommand {
                     Location minLoc = new Location(player.getWorld(), min.x(), min.y(), min.z());
                     Location maxLoc = new Location(player.getWorld(), max.x(), max.y(), max.z());
 
-                    int regionId = db.createRegion(name, minLoc, maxLoc);
-                    if (regionId != -1) {
-                        player.sendMessage(String.format(messageManager.getMessage("region_created", player), name));
-                    } else {
-                        player.sendMessage(messageManager.getMessage("region_creation_failed", player));
-                    }
+                    createRegion(player, name, minLoc, maxLoc);
                     return;
                 }
             } catch (IncompleteRegionException e) {
@@ -171,8 +161,21 @@ public class VETRegionCommand {
         player.sendMessage(messageManager.getMessage("region_create_coords_usage", player));
     }
 
+    private void createRegion(Player player, String name, Location minLoc, Location maxLoc) {
+        db.thenSync(db.createRegion(name, minLoc, maxLoc), regionId -> {
+            if (regionId != -1) {
+                player.sendMessage(String.format(messageManager.getMessage("region_created", player), name));
+            } else {
+                player.sendMessage(messageManager.getMessage("region_creation_failed", player));
+            }
+        });
+    }
+
     private void handleList(Player player) {
-        List<VillagerRegion> regions = db.listRegions();
+        db.thenSync(db.listRegions(), regions -> showRegionList(player, regions));
+    }
+
+    private void showRegionList(Player player, List<VillagerRegion> regions) {
         if (regions.isEmpty()) {
             player.sendMessage(messageManager.getMessage("no_regions", player));
             return;
@@ -196,12 +199,13 @@ public class VETRegionCommand {
 
         try {
             int id = Integer.parseInt(args[1]);
-            boolean success = db.deleteRegion(id);
-            if (success) {
-                player.sendMessage(messageManager.getMessage("region_deleted", player));
-            } else {
-                player.sendMessage(messageManager.getMessage("region_not_found", player));
-            }
+            db.thenSync(db.deleteRegion(id), success -> {
+                if (success) {
+                    player.sendMessage(messageManager.getMessage("region_deleted", player));
+                } else {
+                    player.sendMessage(messageManager.getMessage("region_not_found", player));
+                }
+            });
         } catch (NumberFormatException e) {
             player.sendMessage(messageManager.getMessage("id_must_be_number", player));
         }
@@ -214,19 +218,20 @@ public class VETRegionCommand {
         }
         
         int id = Integer.parseInt(args[1]);
-        VillagerRegion region = db.getRegion(id);
-        if (region == null) {
-            player.sendMessage(messageManager.getMessage("region_not_found", player));
-            return;
-        }
+        db.thenSync(db.getRegion(id), region -> {
+            if (region == null) {
+                player.sendMessage(messageManager.getMessage("region_not_found", player));
+                return;
+            }
 
-        if (args.length < 3) {
-            player.sendMessage(messageManager.getMessage("region_edit_usage", player));
-            return;
-        }
+            if (args.length < 3) {
+                player.sendMessage(messageManager.getMessage("region_edit_usage", player));
+                return;
+            }
 
-        String newName = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
-        db.updateRegionName(id, newName);
-        player.sendMessage(String.format(messageManager.getMessage("region_name_updated", player), newName));
+            String newName = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
+            db.thenSync(db.updateRegionName(id, newName), updated ->
+                    player.sendMessage(String.format(messageManager.getMessage("region_name_updated", player), newName)));
+        });
     }
 } 
\ No newline at end of file
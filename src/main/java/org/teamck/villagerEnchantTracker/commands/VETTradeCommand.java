@@ -11,36 +11,39 @@ import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.chat.HoverEvent;
 import net.md_5.bungee.api.chat.ComponentBuilder;
 import org.teamck.villagerEnchantTracker.core.Trade;
-import org.teamck.villagerEnchantTracker.database.Database;
+import org.teamck.villagerEnchantTracker.core.VillagerRegion;
+import org.teamck.villagerEnchantTracker.core.VillagerSnapshot;
+import org.teamck.villagerEnchantTracker.database.AsyncDatabase;
+import org.teamck.villagerEnchantTracker.database.TradeQuery;
 import org.teamck.villagerEnchantTracker.manager.MessageManager;
 import org.teamck.villagerEnchantTracker.manager.ParticleManager;
 import org.teamck.villagerEnchantTracker.manager.EnchantmentManager;
+import org.teamck.villagerEnchantTracker.manager.VillagerRegistry;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
-import org.bukkit.Material;
-import org.bukkit.enchantments.Enchantment;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.MerchantRecipe;
-import org.bukkit.inventory.meta.EnchantmentStorageMeta;
-
 public class VETTradeCommand {
-    private final Database db;
+    private final AsyncDatabase db;
     private final MessageManager messageManager;
     private final JavaPlugin plugin;
     private final ParticleManager particleManager;
+    private final VillagerRegistry villagerRegistry;
+    private static final int TRADE_LIST_PAGE_SIZE = 10;
+    private static final List<String> SEARCH_OPTIONS = Arrays.asList("--level", "--max-price", "--region", "--world", "--radius", "--sort", "--limit");
     private static final List<String> SUBCOMMANDS = Arrays.asList("create", "search", "list", "delete", "edit-description");  // subcommands not listed here are internal commands
 
-    public VETTradeCommand(Database db, MessageManager messageManager, JavaPlugin plugin) {
+    public VETTradeCommand(AsyncDatabase db, MessageManager messageManager, JavaPlugin plugin, VillagerRegistry villagerRegistry) {
         this.db = db;
         this.messageManager = messageManager;
         this.plugin = plugin;
         this.particleManager = new ParticleManager(plugin);
+        this.villagerRegistry = villagerRegistry;
     }
 
     public boolean executeCommand(CommandSender sender, String[] args) {
@@ -97,9 +100,24 @@ public class VETTradeCommand {
 
         String baseLanguage = messageManager.getBaseLanguageCode(((Player) sender).getLocale());
         return switch (args[0].toLowerCase()) {
-            case "search" -> args.length == 2 ? messageManager.getEnchantNames(baseLanguage).stream()
-                    .filter(name -> name.toLowerCase().startsWith(args[1].toLowerCase()))
-                    .collect(Collectors.toList()) : new ArrayList<>();
+            case "search" -> {
+                String current = args[args.length - 1].toLowerCase();
+                String previous = args[args.length - 2].toLowerCase();
+                if (previous.equals("--sort")) {
+                    yield Arrays.stream(TradeQuery.Sort.values()).map(sort -> sort.name().toLowerCase())
+                            .filter(sort -> sort.startsWith(current)).collect(Collectors.toList());
+                } else if (previous.equals("--region")) {
+                    yield db.getDatabase().listRegions().stream().map(VillagerRegion::getName)
+                            .filter(name -> name.toLowerCase().startsWith(current)).collect(Collectors.toList());
+                } else if (current.startsWith("-")) {
+                    yield SEARCH_OPTIONS.stream().filter(opt -> opt.startsWith(current)).collect(Collectors.toList());
+                } else if (args.length == 2) {
+                    yield messageManager.getEnchantNames(baseLanguage).stream()
+                            .filter(name -> name.toLowerCase().startsWith(current))
+                            .collect(Collectors.toList());
+                }
+                yield new ArrayList<>();
+            }
             case "edit-description" -> {
                 if (args.length == 2) yield List.of("<id>");
                 else if (args.length >= 3) yield List.of("<description>");
@@ -122,30 +140,22 @@ public class VETTradeCommand {
             player.sendMessage(messageManager.getMessage("no_villager_nearby", player));
             return;
         }
-
-        boolean found = false;
-        for (MerchantRecipe recipe : villager.getRecipes()) {
-            ItemStack result = recipe.getResult();
-            if (result.getType() == Material.ENCHANTED_BOOK && result.getItemMeta() instanceof EnchantmentStorageMeta meta) {
-                for (Map.Entry<Enchantment, Integer> entry : meta.getStoredEnchants().entrySet()) {
-                    String enchantId = EnchantmentManager.normalizeEnchantmentId("minecraft:" + entry.getKey().getKey());
-                    int level = entry.getValue();
-                    int price = recipe.getIngredients().stream()
-                        .filter(i -> i.getType() == Material.EMERALD)
-                        .mapToInt(ItemStack::getAmount)
-                        .sum();
-                    String localName = messageManager.getEnchantName(enchantId, player);
-                    String display = String.format(messageManager.getMessage("trade_clickable_enchant", player), localName, level, price);
-                    TextComponent comp = new TextComponent(display);
-                    comp.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND,
-                        String.format("/vet trade confirm %s %s %d %d", villager.getUniqueId(), enchantId, level, price)));
-                    player.spigot().sendMessage(comp);
-                    found = true;
-                }
-            }
-        }
-        if (!found) {
+        VillagerSnapshot snapshot = VillagerSnapshot.capture(villager);
+        db.updateVillagerPositions(Map.of(snapshot.villagerId(), snapshot.location()));
+        if (snapshot.offers().isEmpty()) {
             player.sendMessage(messageManager.getMessage("no_enchant_trades", player));
+            return;
+        }
+
+        String language = messageManager.getBaseLanguageCode(player.getLocale());
+        String format = messageManager.getMessage("trade_clickable_enchant", player);
+        for (VillagerSnapshot.Offer offer : snapshot.offers()) {
+            String enchantId = EnchantmentManager.normalizeEnchantmentId("minecraft:" + offer.enchantKey());
+            String localName = messageManager.getEnchantName(enchantId, language);
+            TextComponent comp = new TextComponent(String.format(format, localName, offer.level(), offer.price()));
+            comp.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND,
+                String.format("/vet trade confirm %s %s %d %d", snapshot.villagerId(), enchantId, offer.level(), offer.price())));
+            player.spigot().sendMessage(comp);
         }
     }
 
@@ -153,8 +163,15 @@ public class VETTradeCommand {
         if (args.length < 5) return;
         String villagerUUID = args[1];
         String enchantId = EnchantmentManager.normalizeEnchantmentId(args[2]);
-        int level = Integer.parseInt(args[3]);
-        int price = Integer.parseInt(args[4]);
+        int level;
+        int price;
+        try {
+            level = Integer.parseInt(args[3]);
+            price = Integer.parseInt(args[4]);
+        } catch (NumberFormatException e) {
+            player.sendMessage(messageManager.getMessage("invalid_subcommand", player));
+            return;
+        }
         String localName = messageManager.getEnchantName(enchantId, player);
         String askMsg = String.format(messageManager.getMessage("trade_ask_description", player), localName, level, price);
         TextComponent yes = new TextComponent(messageManager.getMessage("trade_yes", player));
@@ -172,16 +189,27 @@ public class VETTradeCommand {
 
     private void handleRegister(Player player, String[] args, String description) {
         if (args.length < 5) return;
-        String villagerUUID = args[1];
+        UUID villagerId;
+        int level;
+        int price;
+        try {
+            villagerId = UUID.fromString(args[1]);
+            level = Integer.parseInt(args[3]);
+            price = Integer.parseInt(args[4]);
+        } catch (IllegalArgumentException e) {
+            // Normally filled in by the confirm buttons; a hand-typed command can get any of these wrong
+            player.sendMessage(messageManager.getMessage("invalid_subcommand", player));
+            return;
+        }
         String enchantId = EnchantmentManager.normalizeEnchantmentId(args[2]);
-        int level = Integer.parseInt(args[3]);
-        int price = Integer.parseInt(args[4]);
         // 디버깅 메시지 추가
         plugin.getLogger().info("Registering trade with description: " + description);
         // regionName 등은 필요시 추가
-        Trade trade = new Trade(villagerUUID, enchantId, level, price, description);
-        db.addTrade(trade); // 실제 등록 로직에 맞게 구현
-        player.sendMessage(messageManager.getMessage("villager_trades_registered", player));
+        // Store where the villager is now, so the trade resolves its region later without the entity loaded
+        Location villagerLoc = villagerRegistry.getLocation(villagerId);
+        Trade trade = new Trade(villagerId, enchantId, level, price, description, null, villagerLoc);
+        db.thenSync(db.addTrade(trade), added ->
+                player.sendMessage(messageManager.getMessage("villager_trades_registered", player)));
     }
 
     private void handleSearch(Player player, String[] args) {
@@ -190,35 +218,87 @@ public class VETTradeCommand {
             return;
         }
 
-        String searchTerm = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
-        String enchantId = messageManager.getEnchantIdFromLocalName(searchTerm, messageManager.getBaseLanguageCode(player.getLocale()));
-        enchantId = EnchantmentManager.normalizeEnchantmentId(enchantId);
-        
-        if (enchantId == null) {
-            player.sendMessage(messageManager.getMessage("invalid_enchant", player));
+        // Everything before the first --flag is the enchant term; several enchants are separated by commas
+        TradeQuery.Builder query = TradeQuery.builder().origin(player.getLocation());
+        List<String> terms = new ArrayList<>();
+        String regionName = null;
+        String option = null;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (!args[i].startsWith("--")) {
+                    terms.add(args[i]);
+                    continue;
+                }
+                option = args[i].toLowerCase();
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException(option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--level" -> {
+                        String[] range = value.split("-", 2);
+                        query.minLevel(Integer.parseInt(range[0]));
+                        query.maxLevel(Integer.parseInt(range.length > 1 ? range[1] : range[0]));
+                    }
+                    case "--max-price" -> query.maxPrice(Integer.parseInt(value));
+                    case "--region" -> regionName = value;
+                    case "--world" -> query.world(value);
+                    case "--radius" -> query.maxDistance(Double.parseDouble(value));
+                    case "--sort" -> query.sortBy(TradeQuery.Sort.valueOf(value.toUpperCase()));
+                    case "--limit" -> query.limit(Integer.parseInt(value));
+                    default -> throw new IllegalArgumentException(option);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            player.sendMessage(String.format(messageManager.getMessage("invalid_search_option", player), option));
             return;
         }
 
+        String baseLanguage = messageManager.getBaseLanguageCode(player.getLocale());
+        for (String term : String.join(" ", terms).split(",")) {
+            if (term.isBlank()) continue;
+            String enchantId = EnchantmentManager.normalizeEnchantmentId(messageManager.getEnchantIdFromLocalName(term.trim(), baseLanguage));
+            if (enchantId == null) {
+                player.sendMessage(messageManager.getMessage("invalid_enchant", player));
+                return;
+            }
+            query.enchant(enchantId);
+        }
+
+        if (regionName != null) {
+            VillagerRegion region = db.getDatabase().getRegionByName(regionName);
+            if (region == null) {
+                player.sendMessage(messageManager.getMessage("region_not_found", player));
+                return;
+            }
+            query.region(region);
+        }
+
+        TradeQuery built = query.build();
+        // Results spawn particles for and locate villagers around the player, so they are shown on the player's thread
+        db.thenSync(player, db.queryTrades(built), trades -> showSearchResults(player, built, trades));
+    }
+
+    private void showSearchResults(Player player, TradeQuery query, List<Trade> trades) {
         // Cancel all existing particles before showing new results
         particleManager.cancelAllParticles(player);
 
-        List<Trade> trades = db.searchTrades(enchantId);
         plugin.getLogger().info("검색된 trade 개수: " + trades.size());
         if (trades.isEmpty()) {
             // log
-            plugin.getLogger().info("No found trades for enchantId: " + enchantId);
+            plugin.getLogger().info("No found trades for enchantIds: " + query.getEnchantIds());
             player.sendMessage(messageManager.getMessage("no_found_trades", player));
             return;
         }
 
+        String baseLanguage = messageManager.getBaseLanguageCode(player.getLocale());
         for (Trade trade : trades) {
             plugin.getLogger().info("Trade ID: " + trade.getId());
-            String localName = messageManager.getEnchantName(enchantId, messageManager.getBaseLanguageCode(player.getLocale()));
-            Villager villager = trade.getVillager();
-            if (villager == null) {
+            String localName = messageManager.getEnchantName(trade.getEnchantId(), baseLanguage);
+            Location loc = villagerRegistry.locate(trade);
+            if (loc == null) {
                 continue;
             }
-            Location loc = villager.getLocation();
             String message = String.format(messageManager.getMessage("found_trade_info", player),
                     trade.getId(),
                     localName, trade.getLevel(),
@@ -236,20 +316,37 @@ public class VETTradeCommand {
     }
 
     private void handleList(Player player, String[] args) {
-        List<Trade> trades = db.listTrades();
+        // The optional argument is the last id of the previous page, filled in by the "next page" button
+        int afterId = 0;
+        if (args.length >= 2) {
+            try {
+                afterId = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                player.sendMessage(messageManager.getMessage("id_must_be_number", player));
+                return;
+            }
+        }
+        final boolean firstPage = afterId == 0;
+        // One extra row tells whether a next page exists
+        db.thenSync(player, db.listTrades(afterId, TRADE_LIST_PAGE_SIZE + 1), trades -> showTradeList(player, trades, firstPage));
+    }
+
+    private void showTradeList(Player player, List<Trade> trades, boolean firstPage) {
         if (trades.isEmpty()) {
             player.sendMessage(messageManager.getMessage("no_trades", player));
             return;
         }
 
-        player.sendMessage(messageManager.getMessage("trade_list_header", player));
-        for (Trade trade : trades) {
+        if (firstPage) {
+            player.sendMessage(messageManager.getMessage("trade_list_header", player));
+        }
+        List<Trade> page = trades.subList(0, Math.min(trades.size(), TRADE_LIST_PAGE_SIZE));
+        for (Trade trade : page) {
             String localName = messageManager.getEnchantName(trade.getEnchantId(), player);
-            Villager villager = trade.getVillager();
-            if (villager == null) {
+            Location loc = villagerRegistry.locate(trade);
+            if (loc == null) {
                 continue;
             }
-            Location loc = villager.getLocation();
             String message = String.format(messageManager.getMessage("trade_list_entry", player),
                     trade.getId(),
                     localName, trade.getLevel(),
@@ -261,6 +358,13 @@ public class VETTradeCommand {
             TextComponent textComponent = messageManager.createClickableMessage(message, loc, "/vet particle", player);
             player.spigot().sendMessage(textComponent);
         }
+
+        if (trades.size() > TRADE_LIST_PAGE_SIZE) {
+            TextComponent next = new TextComponent(messageManager.getMessage("trade_list_next_page", player));
+            next.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND,
+                    "/vet trade list " + page.get(page.size() - 1).getId()));
+            player.spigot().sendMessage(next);
+        }
     }
 
     private void handleDelete(Player player, String[] args) {
@@ -271,8 +375,8 @@ public class VETTradeCommand {
 
         try {
             int id = Integer.parseInt(args[1]);
-            db.deleteTrade(id);
-            player.sendMessage(messageManager.getMessage("trade_deleted", player));
+            db.thenSync(db.deleteTrade(id), ignored ->
+                    player.sendMessage(messageManager.getMessage("trade_deleted", player)));
         } catch (NumberFormatException e) {
             player.sendMessage(messageManager.getMessage("id_must_be_number", player));
         }
@@ -287,12 +391,13 @@ public class VETTradeCommand {
         try {
             int id = Integer.parseInt(args[1]);
             String description = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
-            boolean success = db.updateTradeDescription(id, description);
-            if (success) {
-                player.sendMessage(messageManager.getMessage("description_updated", player));
-            } else {
-                player.sendMessage(messageManager.getMessage("trade_not_found", player));
-            }
+            db.thenSync(db.updateTradeDescription(id, description), success -> {
+                if (success) {
+                    player.sendMessage(messageManager.getMessage("description_updated", player));
+                } else {
+                    player.sendMessage(messageManager.getMessage("trade_not_found", player));
+                }
+            });
         } catch (NumberFormatException e) {
             player.sendMessage(messageManager.getMessage("id_must_be_number", player));
         }
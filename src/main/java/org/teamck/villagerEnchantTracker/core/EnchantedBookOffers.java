@@ -0,0 +1,54 @@
+package org.teamck.villagerEnchantTracker.core;
+
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.Villager;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.MerchantRecipe;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The one place that reads enchanted-book offers out of a villager's recipes.
+ * A single pass with plain loops; each stored enchantment is handed to a {@link Sink},
+ * which callers can reuse across villagers.
+ */
+public final class EnchantedBookOffers {
+    private EnchantedBookOffers() {}
+
+    public interface Sink {
+        /**
+         * @param enchantKey bare registry key, e.g. "mending"
+         * @param price      emeralds across all ingredients
+         */
+        void accept(String enchantKey, int level, int price, int uses, int maxUses);
+    }
+
+    public static void extract(Villager villager, Sink sink) {
+        for (MerchantRecipe recipe : villager.getRecipes()) {
+            ItemStack result = recipe.getResult();
+            if (result.getType() != Material.ENCHANTED_BOOK || !(result.getItemMeta() instanceof EnchantmentStorageMeta meta)) {
+                continue;
+            }
+            int price = emeraldPrice(recipe.getIngredients());
+            int uses = recipe.getUses();
+            int maxUses = recipe.getMaxUses();
+            for (Map.Entry<Enchantment, Integer> entry : meta.getStoredEnchants().entrySet()) {
+                sink.accept(entry.getKey().getKey().getKey(), entry.getValue(), price, uses, maxUses);
+            }
+        }
+    }
+
+    private static int emeraldPrice(List<ItemStack> ingredients) {
+        int price = 0;
+        for (int i = 0; i < ingredients.size(); i++) {
+            ItemStack ingredient = ingredients.get(i);
+            if (ingredient.getType() == Material.EMERALD) {
+                price += ingredient.getAmount();
+            }
+        }
+        return price;
+    }
+}
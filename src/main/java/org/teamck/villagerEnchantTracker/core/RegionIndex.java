@@ -0,0 +1,123 @@
+package org.teamck.villagerEnchantTracker.core;
+
+import org.bukkit.Location;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Per-world chunk grid over region bounds, keyed by world name so worlds loaded later need no re-indexing.
+ * Every chunk a region overlaps holds a reference to it, so a point lookup only checks the
+ * few regions registered in that point's chunk. Writers are serialized; lookups are lock-free.
+ * Regions spanning more than {@link #MAX_INDEXED_CHUNKS} chunks are kept in a per-world side list instead.
+ */
+public class RegionIndex {
+    private static final int MAX_INDEXED_CHUNKS = 4096;
+    private static final long OVERSIZED = Long.MIN_VALUE;
+    private final Map<String, Map<Long, VillagerRegion[]>> cellsByWorld = new ConcurrentHashMap<>();
+
+    public synchronized void add(VillagerRegion region) {
+        if (region.getWorldName() == null) return;
+        Map<Long, VillagerRegion[]> cells = cellsByWorld.computeIfAbsent(region.getWorldName(), w -> new ConcurrentHashMap<>());
+        if (isOversized(region)) {
+            cells.merge(OVERSIZED, new VillagerRegion[]{region}, RegionIndex::insert);
+            return;
+        }
+        for (int cx = region.getMin().getBlockX() >> 4; cx <= region.getMax().getBlockX() >> 4; cx++) {
+            for (int cz = region.getMin().getBlockZ() >> 4; cz <= region.getMax().getBlockZ() >> 4; cz++) {
+                cells.merge(chunkKey(cx, cz), new VillagerRegion[]{region}, RegionIndex::insert);
+            }
+        }
+    }
+
+    public synchronized void remove(VillagerRegion region) {
+        if (region.getWorldName() == null) return;
+        Map<Long, VillagerRegion[]> cells = cellsByWorld.get(region.getWorldName());
+        if (cells == null) return;
+        if (isOversized(region)) {
+            cells.computeIfPresent(OVERSIZED, (key, regions) -> without(regions, region.getId()));
+            return;
+        }
+        for (int cx = region.getMin().getBlockX() >> 4; cx <= region.getMax().getBlockX() >> 4; cx++) {
+            for (int cz = region.getMin().getBlockZ() >> 4; cz <= region.getMax().getBlockZ() >> 4; cz++) {
+                cells.computeIfPresent(chunkKey(cx, cz), (key, regions) -> without(regions, region.getId()));
+            }
+        }
+    }
+
+    /**
+     * Returns the lowest-id region containing {@code location}, or null.
+     */
+    public VillagerRegion find(Location location) {
+        if (location == null || location.getWorld() == null) return null;
+        return find(location.getWorld().getName(), location.getX(), location.getY(), location.getZ());
+    }
+
+    public VillagerRegion find(String worldName, double x, double y, double z) {
+        Map<Long, VillagerRegion[]> cells = cellsByWorld.get(worldName);
+        if (cells == null) return null;
+        int chunkX = (int) Math.floor(x) >> 4;
+        int chunkZ = (int) Math.floor(z) >> 4;
+        VillagerRegion found = firstContaining(cells.get(chunkKey(chunkX, chunkZ)), x, y, z);
+        VillagerRegion oversized = firstContaining(cells.get(OVERSIZED), x, y, z);
+        if (found == null) return oversized;
+        return oversized != null && oversized.getId() < found.getId() ? oversized : found;
+    }
+
+    /**
+     * Calls {@code action} for every region containing the point, not just the lowest-id one.
+     */
+    public void forEachContaining(String worldName, double x, double y, double z, Consumer<VillagerRegion> action) {
+        Map<Long, VillagerRegion[]> cells = cellsByWorld.get(worldName);
+        if (cells == null) return;
+        int chunkX = (int) Math.floor(x) >> 4;
+        int chunkZ = (int) Math.floor(z) >> 4;
+        for (VillagerRegion[] candidates : Arrays.asList(cells.get(chunkKey(chunkX, chunkZ)), cells.get(OVERSIZED))) {
+            if (candidates == null) continue;
+            for (VillagerRegion region : candidates) {
+                if (region.contains(x, y, z)) {
+                    action.accept(region);
+                }
+            }
+        }
+    }
+
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static VillagerRegion firstContaining(VillagerRegion[] candidates, double x, double y, double z) {
+        if (candidates == null) return null;
+        for (VillagerRegion region : candidates) {
+            if (region.contains(x, y, z)) {
+                return region;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isOversized(VillagerRegion region) {
+        long chunksX = (region.getMax().getBlockX() >> 4) - (region.getMin().getBlockX() >> 4) + 1L;
+        long chunksZ = (region.getMax().getBlockZ() >> 4) - (region.getMin().getBlockZ() >> 4) + 1L;
+        return chunksX * chunksZ > MAX_INDEXED_CHUNKS;
+    }
+
+    // Cells stay sorted by id so overlapping regions resolve the same way a full scan in id order would
+    private static VillagerRegion[] insert(VillagerRegion[] regions, VillagerRegion[] added) {
+        VillagerRegion region = added[0];
+        int pos = 0;
+        while (pos < regions.length && regions[pos].getId() < region.getId()) pos++;
+        VillagerRegion[] result = new VillagerRegion[regions.length + 1];
+        System.arraycopy(regions, 0, result, 0, pos);
+        result[pos] = region;
+        System.arraycopy(regions, pos, result, pos + 1, regions.length - pos);
+        return result;
+    }
+
+    private static VillagerRegion[] without(VillagerRegion[] regions, int id) {
+        VillagerRegion[] result = Arrays.stream(regions).filter(r -> r.getId() != id).toArray(VillagerRegion[]::new);
+        return result.length == 0 ? null : result;
+    }
+}
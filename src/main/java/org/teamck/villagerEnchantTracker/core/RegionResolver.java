@@ -0,0 +1,28 @@
+package org.teamck.villagerEnchantTracker.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resolves which region a trade belongs to for the duration of one query, using the stored villager position.
+ * Each villager is looked up at most once, no matter how many of its trades are in the result.
+ */
+public class RegionResolver {
+    private final RegionIndex index;
+    private final Map<UUID, VillagerRegion> villagerRegions = new HashMap<>();
+
+    public RegionResolver(RegionIndex index) {
+        this.index = index;
+    }
+
+    public VillagerRegion find(UUID villagerId, String worldName, double x, double y, double z) {
+        if (worldName == null) return null;
+        if (villagerRegions.containsKey(villagerId)) {
+            return villagerRegions.get(villagerId);
+        }
+        VillagerRegion region = index.find(worldName, x, y, z);
+        villagerRegions.put(villagerId, region);
+        return region;
+    }
+}
@@ -0,0 +1,139 @@
+package org.teamck.villagerEnchantTracker.core;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Runs plugin tasks on the thread that owns what they touch.
+ * On Folia entity and location work goes to the owning region's scheduler; on Paper everything
+ * goes through the Bukkit scheduler on the main thread.
+ */
+public final class TaskScheduler {
+    private static final boolean FOLIA = isClassPresent("io.papermc.paper.threadedregions.RegionizedServer");
+
+    private final JavaPlugin plugin;
+
+    /**
+     * Handle for a scheduled task, the same on both server types.
+     */
+    public interface Task {
+        void cancel();
+        boolean isCancelled();
+    }
+
+    private static final Task RETIRED = new Task() {
+        @Override public void cancel() {}
+        @Override public boolean isCancelled() { return true; }
+    };
+
+    public TaskScheduler(JavaPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public static boolean isFolia() {
+        return FOLIA;
+    }
+
+    /**
+     * Whether the current thread may read {@code entity}: its owning region thread on Folia, the main thread on Paper.
+     */
+    public static boolean ownsEntity(Entity entity) {
+        return FOLIA ? Bukkit.isOwnedByCurrentRegion(entity) : Bukkit.isPrimaryThread();
+    }
+
+    /**
+     * Runs on the next tick of the global region (Folia) or the main thread (Paper).
+     * Use for work that isn't tied to an entity or a location, like sending results to a player.
+     */
+    public void runGlobal(Runnable task) {
+        if (FOLIA) {
+            plugin.getServer().getGlobalRegionScheduler().execute(plugin, task);
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * Runs on the next tick of the thread that owns {@code entity}. Skipped if the entity is removed first.
+     */
+    public void run(Entity entity, Runnable task) {
+        if (FOLIA) {
+            entity.getScheduler().execute(plugin, task, null, 1L);
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, task);
+        }
+    }
+
+    public Task runLater(Entity entity, Runnable task, long delayTicks) {
+        if (FOLIA) {
+            return wrap(entity.getScheduler().runDelayed(plugin, scheduled -> task.run(), null, Math.max(1L, delayTicks)));
+        }
+        return wrap(plugin.getServer().getScheduler().runTaskLater(plugin, task, delayTicks));
+    }
+
+    /**
+     * Repeats on the thread that owns {@code entity}; on Folia the task stops by itself when the entity is removed.
+     */
+    public Task runTimer(Entity entity, Runnable task, long delayTicks, long periodTicks) {
+        if (FOLIA) {
+            // Folia rejects a zero initial delay
+            return wrap(entity.getScheduler().runAtFixedRate(plugin, scheduled -> task.run(), null,
+                    Math.max(1L, delayTicks), Math.max(1L, periodTicks)));
+        }
+        return wrap(plugin.getServer().getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks));
+    }
+
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        if (FOLIA) {
+            return wrap(plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, scheduled -> task.run(),
+                    Math.max(1L, delayTicks), Math.max(1L, periodTicks)));
+        }
+        return wrap(plugin.getServer().getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks));
+    }
+
+    /**
+     * Runs immediately when the current thread already owns {@code location}, otherwise on its owner's next tick.
+     */
+    public void executeAt(Location location, Runnable task) {
+        if (FOLIA) {
+            if (Bukkit.isOwnedByCurrentRegion(location)) {
+                task.run();
+            } else {
+                plugin.getServer().getRegionScheduler().execute(plugin, location, task);
+            }
+        } else if (Bukkit.isPrimaryThread()) {
+            task.run();
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, task);
+        }
+    }
+
+    private static Task wrap(BukkitTask task) {
+        return new Task() {
+            @Override public void cancel() { task.cancel(); }
+            @Override public boolean isCancelled() { return task.isCancelled(); }
+        };
+    }
+
+    private static Task wrap(ScheduledTask task) {
+        // Entity schedulers return null when the entity was already removed
+        if (task == null) return RETIRED;
+        return new Task() {
+            @Override public void cancel() { task.cancel(); }
+            @Override public boolean isCancelled() { return task.isCancelled(); }
+        };
+    }
+
+    private static boolean isClassPresent(String name) {
+        try {
+            Class.forName(name);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -2,56 +2,80 @@ package org.teamck.villagerEnchantTracker.core;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.entity.Entity;
-import org.bukkit.entity.Villager;
+import org.bukkit.World;
 
 import java.util.UUID;
 
 public class Trade {
     private final int id;
-    private final String villagerUuid;
+    // Parsed once; entity lookups and comparisons use it directly
+    private final UUID villagerId;
     private final String enchantId;
     private final int level;
     private final int price;
     private final String description;
     private final String regionName;
+    // Last position the plugin observed the villager at; worldName is null when it was never seen
+    private final String worldName;
+    private final double x;
+    private final double y;
+    private final double z;
 
-    public Trade(String villagerUuid, String enchantId, int level, int price, String description) {
-        this(0, villagerUuid, enchantId, level, price, description, null);
+    public Trade(UUID villagerId, String enchantId, int level, int price, String description, String regionName, Location location) {
+        this(0, villagerId, enchantId, level, price, description, regionName,
+                location != null && location.getWorld() != null ? location.getWorld().getName() : null,
+                location != null ? location.getX() : 0, location != null ? location.getY() : 0, location != null ? location.getZ() : 0);
     }
 
-    public Trade(String villagerUuid, String enchantId, int level, int price, String description, String regionName) {
-        this(0, villagerUuid, enchantId, level, price, description, regionName);
-    }
-
-    public Trade(int id, String villagerUuid, String enchantId, int level, int price, String description, String regionName) {
+    public Trade(int id, UUID villagerId, String enchantId, int level, int price, String description, String regionName,
+                 String worldName, double x, double y, double z) {
         this.id = id;
-        this.villagerUuid = villagerUuid;
+        this.villagerId = villagerId;
         this.enchantId = enchantId;
         this.level = level;
         this.price = price;
         this.description = description;
         this.regionName = regionName;
+        this.worldName = worldName;
+        this.x = x;
+        this.y = y;
+        this.z = z;
     }
 
     public int getId() { return id; }
-    public String getVillagerUuid() { return villagerUuid; }
+    public UUID getVillagerId() { return villagerId; }
     public String getEnchantId() { return enchantId; }
     public int getLevel() { return level; }
     public int getPrice() { return price; }
     public String getDescription() { return description; }
     public String getRegionName() { return regionName; }
+    public String getWorldName() { return worldName; }
+    public double getX() { return x; }
+    public double getY() { return y; }
+    public double getZ() { return z; }
+    public boolean hasPosition() { return worldName != null; }
 
+    /**
+     * Returns the stored villager position, or null when it was never recorded or its world isn't loaded.
+     * Never looks at the live entity; {@code VillagerRegistry.locate} does that.
+     */
     public Location getLocation() {
-        Entity entity = Bukkit.getEntity(UUID.fromString(villagerUuid));
-        if (entity instanceof Villager villager) {
-            return villager.getLocation();
-        }
-        return null;
+        if (!hasPosition()) return null;
+        World world = Bukkit.getWorld(worldName);
+        return world != null ? new Location(world, x, y, z) : null;
     }
 
-    public Villager getVillager() {
-        Entity entity = Bukkit.getEntity(UUID.fromString(villagerUuid));
-        return entity instanceof Villager villager ? villager : null;
+    /**
+     * Squared distance from {@code from} to the stored position, or {@link Double#MAX_VALUE}
+     * when the position is unknown or in another world.
+     */
+    public double distanceSquared(Location from) {
+        if (!hasPosition() || from.getWorld() == null || !worldName.equals(from.getWorld().getName())) {
+            return Double.MAX_VALUE;
+        }
+        double dx = x - from.getX();
+        double dy = y - from.getY();
+        double dz = z - from.getZ();
+        return dx * dx + dy * dy + dz * dz;
     }
-} 
\ No newline at end of file
+}
@@ -3,17 +3,28 @@ package org.teamck.villagerEnchantTracker.core;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.teamck.villagerEnchantTracker.commands.FindVillagerCommand;
 import org.teamck.villagerEnchantTracker.commands.VETRegionCommand;
+import org.teamck.villagerEnchantTracker.database.AsyncDatabase;
 import org.teamck.villagerEnchantTracker.database.Database;
 import org.teamck.villagerEnchantTracker.database.SQLiteDatabase;
+import org.teamck.villagerEnchantTracker.manager.EnchantmentManager;
 import org.teamck.villagerEnchantTracker.manager.MessageManager;
+import org.teamck.villagerEnchantTracker.manager.TradeCaptureListener;
+import org.teamck.villagerEnchantTracker.manager.VillagerRegistry;
 import org.teamck.villagerEnchantTracker.commands.VETTradeCommand;
 import org.teamck.villagerEnchantTracker.commands.VETEVTCommand;
 import org.teamck.villagerEnchantTracker.commands.VETCommand;
 import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public final class VillagerEnchantTracker extends JavaPlugin {
     private Database db;
+    private AsyncDatabase asyncDb;
     private MessageManager messageManager;
+    private VillagerRegistry villagerRegistry;
+    // CPU work taken off the server threads, such as comparing captured offers or EVT coverage
+    private ExecutorService worker;
 
     @Override
     public void onEnable() {
@@ -23,20 +34,35 @@ public final class VillagerEnchantTracker extends JavaPlugin {
             
             // Initialize database and message manager
             this.db = new SQLiteDatabase(this);
+            this.asyncDb = new AsyncDatabase(db, this);
             this.messageManager = new MessageManager(this);
+            this.worker = Executors.newFixedThreadPool(2, Thread.ofPlatform().name("VillagerEnchantTracker-worker-", 0).daemon().factory());
+
+            // Enchantment lookups read a snapshot of the registry, refreshed on datapack reloads
+            EnchantmentManager.reloadRegistry();
+            getServer().getPluginManager().registerEvents(new EnchantmentManager.ReloadListener(), this);
+
+            // Track loaded villagers from events instead of looking them up per trade
+            this.villagerRegistry = new VillagerRegistry(asyncDb);
+            getServer().getPluginManager().registerEvents(villagerRegistry, this);
+            villagerRegistry.trackLoadedVillagers();
+
+            if (getConfig().getBoolean("auto-capture.enabled", false)) {
+                getServer().getPluginManager().registerEvents(new TradeCaptureListener(this, asyncDb, worker), this);
+            }
 
             // Create command handlers
-            VETTradeCommand librarianCommand = new VETTradeCommand(db, messageManager, this);
-            VETRegionCommand regionCommand = new VETRegionCommand(db, messageManager, this);
-            VETEVTCommand evtCommand = new VETEVTCommand(this, db);
+            VETTradeCommand librarianCommand = new VETTradeCommand(asyncDb, messageManager, this, villagerRegistry);
+            VETRegionCommand regionCommand = new VETRegionCommand(asyncDb, messageManager, this);
+            VETEVTCommand evtCommand = new VETEVTCommand(this, asyncDb, worker);
 
             // Register main VET command
-            VETCommand vetCommand = new VETCommand(this, librarianCommand, regionCommand, evtCommand);
+            VETCommand vetCommand = new VETCommand(this, librarianCommand, regionCommand, evtCommand, villagerRegistry);
             getCommand("vet").setExecutor(vetCommand);
             getCommand("vet").setTabCompleter(vetCommand);
 
             // Register findvillager command separately
-            FindVillagerCommand findVillagerCommand = new FindVillagerCommand(messageManager, this, db);
+            FindVillagerCommand findVillagerCommand = new FindVillagerCommand(messageManager, this, asyncDb, villagerRegistry);
             getCommand("findvillager").setExecutor(findVillagerCommand);
             getCommand("findvillager").setTabCompleter(findVillagerCommand);
 
@@ -48,6 +74,20 @@ public final class VillagerEnchantTracker extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        // Plugin shutdown logic
+        if (worker != null) {
+            // Lets running tasks queue their trades before the database shuts down
+            worker.shutdown();
+            try {
+                if (!worker.awaitTermination(5, TimeUnit.SECONDS)) {
+                    getLogger().warning("Timed out waiting for background tasks");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (asyncDb != null) {
+            // Writes any buffered trades before the I/O thread stops
+            asyncDb.shutdown();
+        }
     }
 } 
\ No newline at end of file
@@ -1,11 +1,11 @@
 package org.teamck.villagerEnchantTracker.core;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Villager;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class VillagerRegion {
@@ -13,29 +13,43 @@ public class VillagerRegion {
     private final String name;
     private final Location min;
     private final Location max;
-    private final World world;
+    // Stored name rather than the World, so regions in worlds loaded after the plugin still resolve
+    private final String worldName;
 
     public VillagerRegion(int id, String name, Location min, Location max) {
+        this(id, name, min.getWorld() != null ? min.getWorld().getName() : null, min, max);
+    }
+
+    public VillagerRegion(int id, String name, String worldName, Location min, Location max) {
         this.id = id;
         this.name = name;
+        this.worldName = worldName;
         this.min = min;
         this.max = max;
-        this.world = min.getWorld();
     }
 
     public int getId() { return id; }
     public String getName() { return name; }
     public Location getMin() { return min; }
     public Location getMax() { return max; }
-    public World getWorld() { return world; }
+    public String getWorldName() { return worldName; }
+
+    /**
+     * The loaded world this region is in, or null while that world isn't loaded.
+     */
+    public World getWorld() {
+        return worldName != null ? Bukkit.getWorld(worldName) : null;
+    }
 
     public boolean contains(Location location) {
-        if (location.getWorld() != world) return false;
-    
-        double x = location.getX();
-        double y = location.getY();
-        double z = location.getZ();
-    
+        if (location.getWorld() == null || !location.getWorld().getName().equals(worldName)) return false;
+        return contains(location.getX(), location.getY(), location.getZ());
+    }
+
+    /**
+     * Bounds check only; the caller is responsible for making sure the point is in this region's world.
+     */
+    public boolean contains(double x, double y, double z) {
         // min과 max의 블록 경계로 정규화
         double minX = Math.floor(min.getX());
         double minY = Math.floor(min.getY());
@@ -50,22 +64,24 @@ public class VillagerRegion {
                z >= minZ && z < maxZ;
     }
 
-    public List<Villager> getLibrariansInRegion() {
-        List<Villager> librarians = new ArrayList<>();
-        
-        // Get all entities in the region's world
-        for (Entity entity : world.getEntities()) {
-            if (!(entity instanceof Villager)) continue;
-            
-            Location loc = entity.getLocation();
-            if (contains(loc)) {
-                Villager villager = (Villager) entity;
-                if (villager.getProfession() == Villager.Profession.LIBRARIAN) {
-                    librarians.add(villager);
-                }
+    public int getMinChunkX() { return Location.locToBlock(min.getX()) >> 4; }
+    public int getMinChunkZ() { return Location.locToBlock(min.getZ()) >> 4; }
+    public int getMaxChunkX() { return Location.locToBlock(max.getX()) >> 4; }
+    public int getMaxChunkZ() { return Location.locToBlock(max.getZ()) >> 4; }
+
+    /**
+     * Adds the librarians inside this region from one chunk it overlaps. Unloaded chunks are skipped, not loaded.
+     */
+    public void collectLibrarians(int chunkX, int chunkZ, List<Villager> librarians) {
+        World world = getWorld();
+        if (world == null || !world.isChunkLoaded(chunkX, chunkZ)) return;
+
+        for (Entity entity : world.getChunkAt(chunkX, chunkZ).getEntities()) {
+            if (entity instanceof Villager villager
+                    && villager.getProfession() == Villager.Profession.LIBRARIAN
+                    && contains(villager.getLocation())) {
+                librarians.add(villager);
             }
         }
-
-        return librarians;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package org.teamck.villagerEnchantTracker.core;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Villager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable copy of a villager's enchanted-book offers.
+ * Taken on the main thread, where only the raw values are read; normalizing, deduplicating and
+ * everything else happens later on whichever thread processes the snapshot.
+ */
+public record VillagerSnapshot(UUID villagerId, Location location, List<Offer> offers) {
+    /**
+     * One stored enchantment of an enchanted-book offer; {@code enchantKey} is the bare key, e.g. "mending".
+     */
+    public record Offer(String enchantKey, int level, int price, int uses, int maxUses) {}
+
+    public static VillagerSnapshot capture(Villager villager) {
+        List<Offer> offers = new ArrayList<>();
+        EnchantedBookOffers.extract(villager, (enchantKey, level, price, uses, maxUses) ->
+                offers.add(new Offer(enchantKey, level, price, uses, maxUses)));
+        return new VillagerSnapshot(villager.getUniqueId(), villager.getLocation(), List.copyOf(offers));
+    }
+}
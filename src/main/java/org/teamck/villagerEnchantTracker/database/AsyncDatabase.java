@@ -0,0 +1,210 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.teamck.villagerEnchantTracker.core.TaskScheduler;
+import org.teamck.villagerEnchantTracker.core.Trade;
+import org.teamck.villagerEnchantTracker.core.VillagerRegion;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Asynchronous front of {@link Database}.
+ * Writes are serialized on a dedicated writer thread, trade reads run concurrently on virtual
+ * threads; anything that needs Bukkit (entity lookups, messages) is handed back to the main
+ * thread through {@link #thenSync}.
+ * Trade reads see committed rows only: a buffered trade shows up once its batch is written, at most
+ * {@code trade-writes.flush-interval} later, so searches never break up the write batches.
+ */
+public class AsyncDatabase {
+    private final Database db;
+    private final JavaPlugin plugin;
+    private final ExecutorService ioExecutor;
+    private final ExecutorService readExecutor;
+    private final TaskScheduler scheduler;
+    private final Executor mainThread;
+    private final TradeWriteQueue writeQueue;
+
+    public AsyncDatabase(Database db, JavaPlugin plugin) {
+        this.db = db;
+        this.plugin = plugin;
+        // SQLite allows a single writer, so all writes are serialized on one thread
+        this.ioExecutor = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("VillagerEnchantTracker-DB").factory());
+        // Readers are bounded by the database's reader pool, not by this executor
+        this.readExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("VillagerEnchantTracker-DB-read-", 0).factory());
+        // The global region thread on Folia, which has no main thread
+        this.scheduler = new TaskScheduler(plugin);
+        this.mainThread = scheduler::runGlobal;
+        this.writeQueue = new TradeWriteQueue(db, ioExecutor,
+                plugin.getConfig().getInt("trade-writes.batch-size", 100),
+                (long) (plugin.getConfig().getDouble("trade-writes.flush-interval", 1.0) * 1000));
+    }
+
+    public Database getDatabase() { return db; }
+    public Executor mainThread() { return mainThread; }
+
+    /**
+     * Queues the trade behind the write buffer; the future completes when its batch is committed.
+     */
+    public CompletableFuture<Boolean> addTrade(Trade trade) {
+        return writeQueue.add(trade);
+    }
+
+    public CompletableFuture<Void> updateVillagerPositions(Map<UUID, Location> positions) {
+        return supply(() -> {
+            db.updateVillagerPositions(positions);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Trade>> searchTrades(String enchantId) {
+        return read(() -> db.searchTrades(enchantId));
+    }
+
+    public CompletableFuture<List<Trade>> findBestTrades(String enchantId, Location origin, TradeQuery.Sort sort, int limit) {
+        Location from = origin.clone();
+        return read(() -> db.findBestTrades(enchantId, from, sort, limit));
+    }
+
+    public CompletableFuture<List<Trade>> queryTrades(TradeQuery query) {
+        return read(() -> db.queryTrades(query));
+    }
+
+    public CompletableFuture<List<Trade>> listTrades() {
+        return read(db::listTrades);
+    }
+
+    public CompletableFuture<List<Trade>> listTrades(int afterId, int limit) {
+        return read(() -> db.listTrades(afterId, limit));
+    }
+
+    public CompletableFuture<Void> deleteTrade(int id) {
+        writeQueue.flush();
+        return supply(() -> {
+            db.deleteTrade(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> updateTradeDescription(int id, String description) {
+        writeQueue.flush();
+        return supply(() -> db.updateTradeDescription(id, description));
+    }
+
+    public CompletableFuture<Integer> createRegion(String name, Location min, Location max) {
+        return supply(() -> db.createRegion(name, min, max));
+    }
+
+    public CompletableFuture<Boolean> deleteRegion(int id) {
+        return supply(() -> db.deleteRegion(id));
+    }
+
+    public CompletableFuture<List<VillagerRegion>> listRegions() {
+        return supply(db::listRegions);
+    }
+
+    public CompletableFuture<VillagerRegion> getRegion(int id) {
+        return supply(() -> db.getRegion(id));
+    }
+
+    public CompletableFuture<VillagerRegion> getRegionByName(String name) {
+        return supply(() -> db.getRegionByName(name));
+    }
+
+    public CompletableFuture<List<Trade>> getTradesInRegion(int regionId) {
+        return read(() -> db.getTradesInRegion(regionId));
+    }
+
+    public CompletableFuture<List<Trade>> getTradesInRegion(int regionId, int afterId, int limit) {
+        return read(() -> db.getTradesInRegion(regionId, afterId, limit));
+    }
+
+    /**
+     * Coverage of each region, in the given order.
+     */
+    public CompletableFuture<Map<VillagerRegion, List<RegionCoverage.Entry>>> getRegionCoverage(List<VillagerRegion> regions) {
+        return read(() -> {
+            Map<VillagerRegion, List<RegionCoverage.Entry>> coverage = new LinkedHashMap<>();
+            for (VillagerRegion region : regions) {
+                coverage.put(region, db.getRegionCoverage(region.getId()));
+            }
+            return coverage;
+        });
+    }
+
+    /**
+     * Includes trades still in the write buffer, so a villager's offers can be read back right after capturing them.
+     */
+    public CompletableFuture<List<Trade>> getTradesByVillager(UUID villagerId) {
+        return afterPendingWrites(() -> db.getTradesByVillager(villagerId));
+    }
+
+    public CompletableFuture<Boolean> updateRegionName(int id, String newName) {
+        return supply(() -> db.updateRegionName(id, newName));
+    }
+
+    /**
+     * Runs {@code action} on the main thread once {@code future} completes, logging any failure.
+     */
+    public <T> void thenSync(CompletableFuture<T> future, Consumer<? super T> action) {
+        future.thenAcceptAsync(action, mainThread).exceptionally(ex -> {
+            plugin.getLogger().log(Level.SEVERE, "Database task failed", ex);
+            return null;
+        });
+    }
+
+    /**
+     * Runs {@code action} on the thread that owns {@code entity} once {@code future} completes, for callbacks that
+     * read the entity or its surroundings. Dropped if the entity is removed first.
+     */
+    public <T> void thenSync(Entity entity, CompletableFuture<T> future, Consumer<? super T> action) {
+        future.thenAcceptAsync(action, task -> scheduler.run(entity, task)).exceptionally(ex -> {
+            plugin.getLogger().log(Level.SEVERE, "Database task failed", ex);
+            return null;
+        });
+    }
+
+    /**
+     * Flushes buffered trades, stops accepting work and waits for queued queries to finish.
+     */
+    public void shutdown() {
+        writeQueue.flush();
+        ioExecutor.shutdown();
+        readExecutor.shutdown();
+        try {
+            if (!ioExecutor.awaitTermination(10, TimeUnit.SECONDS)
+                    || !readExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for pending database tasks");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        db.close();
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, ioExecutor);
+    }
+
+    private <T> CompletableFuture<T> read(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, readExecutor);
+    }
+
+    // Only for reads that must see the caller's own buffered writes: the flush future completes once every
+    // trade queued so far is committed, whether or not that batch went through
+    private <T> CompletableFuture<T> afterPendingWrites(Supplier<T> task) {
+        return writeQueue.flush().handle((written, ex) -> null).thenApplyAsync(ignored -> task.get(), readExecutor);
+    }
+}
@@ -1,17 +1,30 @@
 package org.teamck.villagerEnchantTracker.database;
 
 import org.bukkit.Location;
-import org.bukkit.entity.Villager;
 import org.teamck.villagerEnchantTracker.core.Trade;
 import org.teamck.villagerEnchantTracker.core.VillagerRegion;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface Database {
     void init();
     boolean addTrade(Trade trade);
+    boolean addTrades(Collection<Trade> trades);
+    void updateVillagerPositions(Map<UUID, Location> positions);
     List<Trade> searchTrades(String enchantId);
+    List<Trade> queryTrades(TradeQuery query);
+    // The best limit stored sellers of the enchant in origin's world by sort (distance, price or level), from an in-memory index
+    List<Trade> findBestTrades(String enchantId, Location origin, TradeQuery.Sort sort, int limit);
+    // Whether the villager has stored trades that were never given a position
+    boolean isMissingPosition(UUID villagerId);
     List<Trade> listTrades();
+    // Keyset pagination: trades with id > afterId in id order, at most limit of them
+    List<Trade> listTrades(int afterId, int limit);
+    void forEachTrade(Consumer<? super Trade> action);
     void deleteTrade(int id);
     boolean updateTradeDescription(int id, String description);
     
@@ -21,7 +34,13 @@ public interface Database {
     List<VillagerRegion> listRegions();
     VillagerRegion getRegion(int id);
     VillagerRegion getRegionByName(String name);
+    VillagerRegion findRegion(Location location);
     List<Trade> getTradesInRegion(int regionId);
-    List<Trade> getTradesByVillager(String villagerUuid);
+    List<Trade> getTradesInRegion(int regionId, int afterId, int limit);
+    void forEachTradeInRegion(int regionId, Consumer<? super Trade> action);
+    List<Trade> getTradesByVillager(UUID villagerId);
+    // Best level, lowest price and sellers per enchant among the stored trades inside the region
+    List<RegionCoverage.Entry> getRegionCoverage(int regionId);
     boolean updateRegionName(int id, String newName);
+    void close();
 } 
\ No newline at end of file
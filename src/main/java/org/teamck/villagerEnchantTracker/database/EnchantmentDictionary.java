@@ -0,0 +1,67 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import org.teamck.villagerEnchantTracker.manager.EnchantmentManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory mirror of the Enchantments table, mapping normalized enchant ids to their integer keys and back.
+ * Lookups are lock-free; new names are only registered from the writer connection.
+ */
+public class EnchantmentDictionary {
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+
+    public void load(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name FROM Enchantments")) {
+            while (rs.next()) {
+                // Stored names are already normalized; this swaps in the shared canonical instance
+                String name = EnchantmentManager.normalizeEnchantmentId(rs.getString("name"));
+                idsByName.put(name, rs.getInt("id"));
+                namesById.put(rs.getInt("id"), name);
+            }
+        }
+    }
+
+    /**
+     * Returns the key of an enchant that is already stored, or -1 if no trade has ever used it.
+     */
+    public int find(String enchantId) {
+        Integer id = idsByName.get(EnchantmentManager.normalizeEnchantmentId(enchantId));
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the key for {@code enchantId}, inserting it first if needed.
+     * Call only on the writer connection and outside a transaction, so a rollback can't orphan a cached key.
+     */
+    public synchronized int register(StatementCache statements, String enchantId) throws SQLException {
+        String name = EnchantmentManager.normalizeEnchantmentId(enchantId);
+        Integer id = idsByName.get(name);
+        if (id != null) return id;
+
+        PreparedStatement insert = statements.prepare("INSERT OR IGNORE INTO Enchantments (name) VALUES (?)");
+        insert.setString(1, name);
+        insert.executeUpdate();
+        PreparedStatement select = statements.prepare("SELECT id FROM Enchantments WHERE name = ?");
+        select.setString(1, name);
+        try (ResultSet rs = select.executeQuery()) {
+            if (!rs.next()) throw new SQLException("Enchantment was not stored: " + name);
+            id = rs.getInt(1);
+        }
+        idsByName.put(name, id);
+        namesById.put(id, name);
+        return id;
+    }
+
+    public String nameOf(int id) {
+        return namesById.get(id);
+    }
+}
@@ -0,0 +1,105 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fixed pool of read-only SQLite connections.
+ * In WAL mode readers don't block the writer or each other, so lookups from several
+ * threads run in parallel instead of queueing behind the single write connection.
+ */
+public class ReaderPool implements AutoCloseable {
+    private static final String SQLITE_OPEN_READONLY = "1";
+    private final List<StatementCache> connections = new ArrayList<>();
+    private final BlockingQueue<StatementCache> idle;
+    private final Logger logger;
+
+    public ReaderPool(String url, int size, int statementCacheSize, Logger logger) throws SQLException {
+        this.logger = logger;
+        int poolSize = Math.max(1, size);
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+        Properties props = new Properties();
+        props.setProperty("open_mode", SQLITE_OPEN_READONLY);
+        for (int i = 0; i < poolSize; i++) {
+            Connection conn = DriverManager.getConnection(url, props);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA cache_size = -8000");
+                stmt.execute("PRAGMA mmap_size = 268435456");
+                stmt.execute("PRAGMA busy_timeout = 5000");
+            }
+            StatementCache statements = new StatementCache(conn, statementCacheSize, logger);
+            connections.add(statements);
+            idle.add(statements);
+        }
+    }
+
+    /**
+     * Borrows a connection until the returned lease is closed; blocks while all connections are in use.
+     */
+    public Lease borrow() throws SQLException {
+        try {
+            return new Lease(idle.take());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection", e);
+        }
+    }
+
+    public long statementCacheHits() {
+        return connections.stream().mapToLong(StatementCache::hits).sum();
+    }
+
+    public long statementCacheMisses() {
+        return connections.stream().mapToLong(StatementCache::misses).sum();
+    }
+
+    @Override
+    public void close() {
+        for (StatementCache statements : connections) {
+            statements.close();
+            try {
+                statements.connection().close();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Failed to close reader connection", e);
+            }
+        }
+    }
+
+    public final class Lease implements AutoCloseable {
+        private final StatementCache statements;
+
+        private Lease(StatementCache statements) {
+            this.statements = statements;
+        }
+
+        /**
+         * Cached statement on the borrowed connection; valid only while the lease is held.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            return statements.prepare(sql);
+        }
+
+        /**
+         * The borrowed connection, for SQL that varies per call and so shouldn't take a cache slot.
+         * Statements prepared on it belong to the caller, who must close them before the lease.
+         */
+        public Connection connection() {
+            return statements.connection();
+        }
+
+        @Override
+        public void close() {
+            idle.offer(statements);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import org.bukkit.Location;
+import org.teamck.villagerEnchantTracker.core.RegionIndex;
+import org.teamck.villagerEnchantTracker.core.RegionResolver;
+import org.teamck.villagerEnchantTracker.core.VillagerRegion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory copy of the Regions table.
+ * Loaded once when the database opens and kept in step by the region write methods,
+ * so region reads never go back to SQLite. Point lookups go through a {@link RegionIndex}.
+ */
+public class RegionCatalog {
+    private final Map<Integer, VillagerRegion> byId = new TreeMap<>();
+    private final Map<String, VillagerRegion> byName = new HashMap<>();
+    private final RegionIndex index = new RegionIndex();
+
+    public synchronized void put(VillagerRegion region) {
+        VillagerRegion previous = byId.put(region.getId(), region);
+        if (previous != null) {
+            byName.remove(previous.getName());
+            index.remove(previous);
+        }
+        byName.put(region.getName(), region);
+        index.add(region);
+    }
+
+    public synchronized boolean remove(int id) {
+        VillagerRegion removed = byId.remove(id);
+        if (removed == null) return false;
+        byName.remove(removed.getName());
+        index.remove(removed);
+        return true;
+    }
+
+    public synchronized boolean rename(int id, String newName) {
+        VillagerRegion region = byId.get(id);
+        if (region == null) return false;
+        put(new VillagerRegion(id, newName, region.getWorldName(), region.getMin(), region.getMax()));
+        return true;
+    }
+
+    public synchronized VillagerRegion get(int id) {
+        return byId.get(id);
+    }
+
+    public synchronized VillagerRegion getByName(String name) {
+        return byName.get(name);
+    }
+
+    // Not synchronized: the index is safe to read while a writer holds the lock
+    public VillagerRegion find(Location location) {
+        return index.find(location);
+    }
+
+    public void forEachContaining(String worldName, double x, double y, double z, Consumer<VillagerRegion> action) {
+        index.forEachContaining(worldName, x, y, z, action);
+    }
+
+    public RegionResolver resolver() {
+        return new RegionResolver(index);
+    }
+
+    public synchronized List<VillagerRegion> list() {
+        return new ArrayList<>(byId.values());
+    }
+}
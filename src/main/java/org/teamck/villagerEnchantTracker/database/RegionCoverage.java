@@ -0,0 +1,76 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import org.teamck.villagerEnchantTracker.database.TradeLocationIndex.Seller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Materialized per-region view of the stored trades: for every enchant sold inside a region, the best
+ * level, the lowest price at that level and the villagers selling it. Fed by {@link TradeLocationIndex}
+ * as sellers are added, removed or move across region bounds, so reading a region never scans trades or entities.
+ */
+public class RegionCoverage {
+    public record Entry(String enchantId, int bestLevel, int lowestPrice, Set<UUID> villagers) {}
+
+    // region id -> enchant -> villager -> offer; only the enchant that changed is re-aggregated
+    private final Map<Integer, Map<String, Map<UUID, Seller>>> sellers = new HashMap<>();
+    private final Map<Integer, Map<String, Entry>> entries = new HashMap<>();
+
+    public synchronized void add(int regionId, Seller seller) {
+        sellers.computeIfAbsent(regionId, id -> new HashMap<>())
+                .computeIfAbsent(seller.enchantId(), e -> new HashMap<>())
+                .put(seller.villagerId(), seller);
+        refresh(regionId, seller.enchantId());
+    }
+
+    public synchronized void remove(int regionId, Seller seller) {
+        Map<String, Map<UUID, Seller>> byEnchant = sellers.get(regionId);
+        if (byEnchant == null) return;
+        Map<UUID, Seller> byVillager = byEnchant.get(seller.enchantId());
+        // Only drop the exact offer; a newer one for the same villager may already be linked
+        if (byVillager == null || !byVillager.remove(seller.villagerId(), seller)) return;
+        refresh(regionId, seller.enchantId());
+    }
+
+    public synchronized void removeRegion(int regionId) {
+        sellers.remove(regionId);
+        entries.remove(regionId);
+    }
+
+    /**
+     * One entry per enchant sold in the region, in no particular order.
+     */
+    public synchronized List<Entry> get(int regionId) {
+        Map<String, Entry> byEnchant = entries.get(regionId);
+        return byEnchant != null ? new ArrayList<>(byEnchant.values()) : List.of();
+    }
+
+    private void refresh(int regionId, String enchantId) {
+        Map<String, Map<UUID, Seller>> byEnchant = sellers.get(regionId);
+        Map<UUID, Seller> byVillager = byEnchant.get(enchantId);
+        Map<String, Entry> regionEntries = entries.computeIfAbsent(regionId, id -> new HashMap<>());
+        if (byVillager.isEmpty()) {
+            byEnchant.remove(enchantId);
+            regionEntries.remove(enchantId);
+            if (byEnchant.isEmpty()) removeRegion(regionId);
+            return;
+        }
+
+        int bestLevel = 0;
+        int lowestPrice = Integer.MAX_VALUE;
+        for (Seller seller : byVillager.values()) {
+            if (seller.level() > bestLevel) {
+                bestLevel = seller.level();
+                lowestPrice = seller.price();
+            } else if (seller.level() == bestLevel) {
+                lowestPrice = Math.min(lowestPrice, seller.price());
+            }
+        }
+        regionEntries.put(enchantId, new Entry(enchantId, bestLevel, lowestPrice, Set.copyOf(byVillager.keySet())));
+    }
+}
@@ -5,64 +5,83 @@ import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
-import org.bukkit.entity.Villager;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.MerchantRecipe;
 import org.bukkit.inventory.meta.EnchantmentStorageMeta;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.teamck.villagerEnchantTracker.core.RegionResolver;
 import org.teamck.villagerEnchantTracker.core.Trade;
 import org.teamck.villagerEnchantTracker.core.VillagerRegion;
 import org.teamck.villagerEnchantTracker.manager.EnchantmentManager;
 
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 public class SQLiteDatabase implements Database {
+    // Single writer; all reads go through the reader pool
     final Connection connection;
+    private final StatementCache statements;
+    private final ReaderPool readers;
+    private final RegionCatalog regionCatalog = new RegionCatalog();
+    private final EnchantmentDictionary enchantments = new EnchantmentDictionary();
+    private final RegionCoverage regionCoverage = new RegionCoverage();
+    // Every seller that enters or leaves a region's bounds updates that region's coverage
+    private final TradeLocationIndex tradeLocations = new TradeLocationIndex(new TradeLocationIndex.SellerListener() {
+        @Override
+        public void linked(TradeLocationIndex.Seller seller) {
+            regionCatalog.forEachContaining(seller.worldName(), seller.x(), seller.y(), seller.z(),
+                    region -> regionCoverage.add(region.getId(), seller));
+        }
+
+        @Override
+        public void unlinked(TradeLocationIndex.Seller seller) {
+            regionCatalog.forEachContaining(seller.worldName(), seller.x(), seller.y(), seller.z(),
+                    region -> regionCoverage.remove(region.getId(), seller));
+        }
+    });
+    private final Logger logger;
+
+    private static final String REGION_TRADES =
+            "SELECT * FROM Trades WHERE world_name = ? AND x >= ? AND x < ? AND y >= ? AND y < ? AND z >= ? AND z < ?";
 
     public SQLiteDatabase(JavaPlugin plugin) throws SQLException {
+        this.logger = plugin.getLogger();
         // Create plugin data folder if it doesn't exist
         if (!plugin.getDataFolder().exists()) {
             plugin.getDataFolder().mkdirs();
         }
         
-        connection = DriverManager.getConnection("jdbc:sqlite:" + plugin.getDataFolder() + "/enchants.db");
+        String url = "jdbc:sqlite:" + plugin.getDataFolder() + "/enchants.db";
+        connection = DriverManager.getConnection(url);
+        int statementCacheSize = plugin.getConfig().getInt("database.statement-cache-size", 32);
+        statements = new StatementCache(connection, statementCacheSize, logger);
+        try (Statement stmt = connection.createStatement()) {
+            // WAL lets readers run alongside the writer; NORMAL sync is durable across application crashes in WAL mode
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("PRAGMA cache_size = -8000");
+            stmt.execute("PRAGMA mmap_size = 268435456");
+            stmt.execute("PRAGMA busy_timeout = 5000");
+        }
         init();
+        enchantments.load(connection);
+        loadRegions();
+        readers = new ReaderPool(url, plugin.getConfig().getInt("database.reader-connections", 4), statementCacheSize, logger);
+        forEachTrade(trade -> tradeLocations.put(trade, trade.getEnchantId()));
     }
 
     @Override
     public void init() {
-        try (Statement stmt = connection.createStatement()) {
-            // Create Regions table
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS Regions (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    name TEXT UNIQUE NOT NULL,
-                    min_x REAL NOT NULL,
-                    min_y REAL NOT NULL,
-                    min_z REAL NOT NULL,
-                    max_x REAL NOT NULL,
-                    max_y REAL NOT NULL,
-                    max_z REAL NOT NULL,
-                    world_name TEXT NOT NULL
-                )
-            """);
-
-            // Create Trades table without region_id
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS Trades (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    villager_uuid TEXT NOT NULL,
-                    enchant_id_string TEXT NOT NULL,
-                    level INTEGER NOT NULL,
-                    price INTEGER NOT NULL,
-                    description TEXT,
-                    UNIQUE(villager_uuid, enchant_id_string)
-                )
-            """);
+        try {
+            SchemaMigrations.migrate(connection, logger);
+            SchemaMigrations.checkQueryPlans(connection, logger);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -70,45 +89,171 @@ public class SQLiteDatabase implements Database {
 
     @Override
     public boolean addTrade(Trade trade) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "INSERT OR REPLACE INTO Trades (villager_uuid, enchant_id_string, level, price, description) VALUES (?, ?, ?, ?, ?)")) {
-            stmt.setString(1, trade.getVillagerUuid());
-            stmt.setString(2, EnchantmentManager.normalizeEnchantmentId(trade.getEnchantId()));
-            stmt.setInt(3, trade.getLevel());
-            stmt.setInt(4, trade.getPrice());
-            stmt.setString(5, trade.getDescription());
-            stmt.executeUpdate();
+        return addTrades(List.of(trade));
+    }
+
+    @Override
+    public boolean addTrades(Collection<Trade> trades) {
+        if (trades.isEmpty()) return true;
+        int[] enchantIds = new int[trades.size()];
+        try {
+            int i = 0;
+            for (Trade trade : trades) {
+                enchantIds[i++] = enchantments.register(statements, trade.getEnchantId());
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+        // Upsert instead of INSERT OR REPLACE so the row keeps its id, and a trade registered without
+        // a known position or description (e.g. auto-captured) doesn't wipe the stored one
+        boolean committed = inTransaction(() -> {
+            PreparedStatement stmt = statements.prepare("""
+                    INSERT INTO Trades (villager_uuid, enchant_id, level, price, description, world_name, x, y, z)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    ON CONFLICT(villager_uuid, enchant_id) DO UPDATE SET
+                        level = excluded.level,
+                        price = excluded.price,
+                        description = COALESCE(excluded.description, description),
+                        world_name = COALESCE(excluded.world_name, world_name),
+                        x = COALESCE(excluded.x, x),
+                        y = COALESCE(excluded.y, y),
+                        z = COALESCE(excluded.z, z)
+                    """);
+            int i = 0;
+            for (Trade trade : trades) {
+                stmt.setBytes(1, UuidBytes.toBytes(trade.getVillagerId()));
+                stmt.setInt(2, enchantIds[i++]);
+                stmt.setInt(3, trade.getLevel());
+                stmt.setInt(4, trade.getPrice());
+                stmt.setString(5, trade.getDescription());
+                if (trade.hasPosition()) {
+                    stmt.setString(6, trade.getWorldName());
+                    stmt.setDouble(7, trade.getX());
+                    stmt.setDouble(8, trade.getY());
+                    stmt.setDouble(9, trade.getZ());
+                } else {
+                    stmt.setNull(6, Types.VARCHAR);
+                    stmt.setNull(7, Types.REAL);
+                    stmt.setNull(8, Types.REAL);
+                    stmt.setNull(9, Types.REAL);
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        });
+        if (committed) {
+            int i = 0;
+            for (Trade trade : trades) {
+                tradeLocations.put(trade, enchantments.nameOf(enchantIds[i++]));
+            }
+        }
+        return committed;
+    }
+
+    @Override
+    public void updateVillagerPositions(Map<UUID, Location> positions) {
+        if (positions.isEmpty()) return;
+        boolean committed = inTransaction(() -> {
+            PreparedStatement stmt = statements.prepare(
+                    "UPDATE Trades SET world_name = ?, x = ?, y = ?, z = ? WHERE villager_uuid = ?");
+            for (Map.Entry<UUID, Location> entry : positions.entrySet()) {
+                Location loc = entry.getValue();
+                stmt.setString(1, loc.getWorld().getName());
+                stmt.setDouble(2, loc.getX());
+                stmt.setDouble(3, loc.getY());
+                stmt.setDouble(4, loc.getZ());
+                stmt.setBytes(5, UuidBytes.toBytes(entry.getKey()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        });
+        if (committed) {
+            positions.forEach((villagerId, loc) ->
+                    tradeLocations.move(villagerId, loc.getWorld().getName(), loc.getX(), loc.getY(), loc.getZ()));
+        }
+    }
+
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    // Runs the work as one transaction, so a batch costs a single commit instead of one per row
+    private boolean inTransaction(SqlWork work) {
+        try {
+            connection.setAutoCommit(false);
+            work.run();
+            connection.commit();
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {}
             return false;
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
         }
     }
 
     @Override
     public List<Trade> searchTrades(String enchantId) {
         List<Trade> trades = new ArrayList<>();
-        try (PreparedStatement stmt = connection.prepareStatement("SELECT * FROM Trades WHERE enchant_id_string = ?")) {
-            stmt.setString(1, EnchantmentManager.normalizeEnchantmentId(enchantId));
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                Trade trade = new Trade(rs.getInt("id"), rs.getString("villager_uuid"), rs.getString("enchant_id_string"),
-                        rs.getInt("level"), rs.getInt("price"), rs.getString("description"), null);
-
-                Villager villager = trade.getVillager();
-                boolean added = false;
-                if (villager != null) {
-                    for (VillagerRegion region : listRegions()) {
-                        if (region.getWorld().equals(villager.getWorld()) && region.contains(villager.getLocation())) {
-                            trades.add(new Trade(trade.getId(), trade.getVillagerUuid(), trade.getEnchantId(), trade.getLevel(),
-                                    trade.getPrice(), trade.getDescription(), region.getName()));
-                            added = true;
-                            break;
-                        }
-                    }
+        int id = enchantments.find(enchantId);
+        if (id < 0) return trades;
+        RegionResolver regions = regionCatalog.resolver();
+        try (ReaderPool.Lease reader = readers.borrow()) {
+            PreparedStatement stmt = reader.prepare("SELECT * FROM Trades WHERE enchant_id = ?");
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    trades.add(readTrade(rs, regions));
                 }
-                if (!added) {
-                    trades.add(trade);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return trades;
+    }
+
+    @Override
+    public List<Trade> findBestTrades(String enchantId, Location origin, TradeQuery.Sort sort, int limit) {
+        if (origin == null || origin.getWorld() == null) return List.of();
+        List<Trade> trades = new ArrayList<>();
+        for (TradeLocationIndex.Seller seller : tradeLocations.best(EnchantmentManager.normalizeEnchantmentId(enchantId),
+                origin.getWorld().getName(), origin.getX(), origin.getY(), origin.getZ(), limit, sort)) {
+            Location loc = new Location(origin.getWorld(), seller.x(), seller.y(), seller.z());
+            VillagerRegion region = regionCatalog.find(loc);
+            trades.add(new Trade(seller.villagerId(), seller.enchantId(), seller.level(), seller.price(), "",
+                    region != null ? region.getName() : null, loc));
+        }
+        return trades;
+    }
+
+    @Override
+    public boolean isMissingPosition(UUID villagerId) {
+        return tradeLocations.isMissingPosition(villagerId);
+    }
+
+    @Override
+    public List<Trade> queryTrades(TradeQuery query) {
+        List<Trade> trades = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        String sql = query.toSql(params, enchantments);
+        RegionResolver regions = regionCatalog.resolver();
+        // Every filter combination is different SQL, so it is prepared uncached to keep the hot statements cached
+        try (ReaderPool.Lease reader = readers.borrow();
+             PreparedStatement stmt = reader.connection().prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    trades.add(readTrade(rs, regions));
                 }
             }
         } catch (SQLException e) {
@@ -120,31 +265,21 @@ public class SQLiteDatabase implements Database {
     @Override
     public List<Trade> listTrades() {
         List<Trade> trades = new ArrayList<>();
-        Set<Integer> addedIds = new HashSet<>();
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM Trades")) {
-            while (rs.next()) {
-                Trade trade = new Trade(rs.getInt("id"), rs.getString("villager_uuid"),
-                        EnchantmentManager.normalizeEnchantmentId(rs.getString("enchant_id_string")),
-                        rs.getInt("level"), rs.getInt("price"), rs.getString("description"), null);
-
-                Villager villager = trade.getVillager();
-                boolean added = false;
-                if (villager != null) {
-                    for (VillagerRegion region : listRegions()) {
-                        if (region.getWorld().equals(villager.getWorld()) && region.contains(villager.getLocation())) {
-                            Trade regionTrade = new Trade(trade.getId(), trade.getVillagerUuid(), trade.getEnchantId(), trade.getLevel(),
-                                    trade.getPrice(), trade.getDescription(), region.getName());
-                            if (addedIds.add(regionTrade.getId())) {
-                                trades.add(regionTrade);
-                                added = true;
-                            }
-                            break;
-                        }
-                    }
-                }
-                if (!added && addedIds.add(trade.getId())) {
-                    trades.add(trade);
+        forEachTrade(trades::add);
+        return trades;
+    }
+
+    @Override
+    public List<Trade> listTrades(int afterId, int limit) {
+        List<Trade> trades = new ArrayList<>(Math.max(0, limit));
+        RegionResolver regions = regionCatalog.resolver();
+        try (ReaderPool.Lease reader = readers.borrow()) {
+            PreparedStatement stmt = reader.prepare("SELECT * FROM Trades WHERE id > ? ORDER BY id LIMIT ?");
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    trades.add(readTrade(rs, regions));
                 }
             }
         } catch (SQLException e) {
@@ -153,12 +288,57 @@ public class SQLiteDatabase implements Database {
         return trades;
     }
 
+    // Rows are stepped one at a time, so nothing beyond the current trade is held in memory
+    @Override
+    public void forEachTrade(Consumer<? super Trade> action) {
+        RegionResolver regions = regionCatalog.resolver();
+        try (ReaderPool.Lease reader = readers.borrow();
+             ResultSet rs = reader.prepare("SELECT * FROM Trades ORDER BY id").executeQuery()) {
+            while (rs.next()) {
+                action.accept(readTrade(rs, regions));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Region membership comes from the stored position, so decoding a row never touches the entity tracker
+    private Trade readTrade(ResultSet rs, RegionResolver regions) throws SQLException {
+        UUID villagerId = UuidBytes.fromBytes(rs.getBytes("villager_uuid"));
+        VillagerRegion region = regions.find(villagerId, rs.getString("world_name"),
+                rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z"));
+        return readTrade(rs, villagerId, region != null ? region.getName() : null);
+    }
+
+    private Trade readTrade(ResultSet rs, String regionName) throws SQLException {
+        return readTrade(rs, UuidBytes.fromBytes(rs.getBytes("villager_uuid")), regionName);
+    }
+
+    private Trade readTrade(ResultSet rs, UUID villagerId, String regionName) throws SQLException {
+        return new Trade(rs.getInt("id"), villagerId, enchantments.nameOf(rs.getInt("enchant_id")),
+                rs.getInt("level"), rs.getInt("price"), Objects.requireNonNullElse(rs.getString("description"), ""), regionName,
+                rs.getString("world_name"), rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z"));
+    }
+
     @Override
     public void deleteTrade(int id) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "DELETE FROM Trades WHERE id = ?")) {
+        try {
+            // Look up the row first so the location index can drop the same offer
+            UUID villagerId = null;
+            String enchantId = null;
+            PreparedStatement select = statements.prepare("SELECT villager_uuid, enchant_id FROM Trades WHERE id = ?");
+            select.setInt(1, id);
+            try (ResultSet rs = select.executeQuery()) {
+                if (rs.next()) {
+                    villagerId = UuidBytes.fromBytes(rs.getBytes("villager_uuid"));
+                    enchantId = enchantments.nameOf(rs.getInt("enchant_id"));
+                }
+            }
+            PreparedStatement stmt = statements.prepare("DELETE FROM Trades WHERE id = ?");
             stmt.setInt(1, id);
-            stmt.executeUpdate();
+            if (stmt.executeUpdate() > 0 && villagerId != null) {
+                tradeLocations.remove(villagerId, enchantId);
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -166,8 +346,8 @@ public class SQLiteDatabase implements Database {
     
     @Override
     public boolean updateTradeDescription(int id, String description) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "UPDATE Trades SET description = ? WHERE id = ?")) {
+        try {
+            PreparedStatement stmt = statements.prepare("UPDATE Trades SET description = ? WHERE id = ?");
             stmt.setString(1, description);
             stmt.setInt(2, id);
             int rowsAffected = stmt.executeUpdate();
@@ -180,9 +360,10 @@ public class SQLiteDatabase implements Database {
 
     @Override
     public int createRegion(String name, Location min, Location max) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "INSERT INTO Regions (name, min_x, min_y, min_z, max_x, max_y, max_z, world_name) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
-                Statement.RETURN_GENERATED_KEYS)) {
+        try {
+            PreparedStatement stmt = statements.prepare(
+                    "INSERT INTO Regions (name, min_x, min_y, min_z, max_x, max_y, max_z, world_name) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
             stmt.setString(1, name);
             stmt.setDouble(2, min.getX());
             stmt.setDouble(3, min.getY());
@@ -193,9 +374,19 @@ public class SQLiteDatabase implements Database {
             stmt.setString(8, min.getWorld().getName());
             stmt.executeUpdate();
             
-            ResultSet rs = stmt.getGeneratedKeys();
-            if (rs.next()) {
-                return rs.getInt(1);
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    int id = rs.getInt(1);
+                    VillagerRegion region = new VillagerRegion(id, name, min, max);
+                    regionCatalog.put(region);
+                    // Sellers already inside the new bounds
+                    tradeLocations.forEachSeller(seller -> {
+                        if (region.getWorldName().equals(seller.worldName()) && region.contains(seller.x(), seller.y(), seller.z())) {
+                            regionCoverage.add(id, seller);
+                        }
+                    });
+                    return id;
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -205,9 +396,12 @@ public class SQLiteDatabase implements Database {
 
     @Override
     public boolean deleteRegion(int id) {
-        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM Regions WHERE id = ?")) {
+        try {
+            PreparedStatement stmt = statements.prepare("DELETE FROM Regions WHERE id = ?");
             stmt.setInt(1, id);
             stmt.executeUpdate();
+            regionCatalog.remove(id);
+            regionCoverage.removeRegion(id);
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -215,112 +409,115 @@ public class SQLiteDatabase implements Database {
         return false;
     }
 
-    @Override
-    public List<VillagerRegion> listRegions() {
-        List<VillagerRegion> regions = new ArrayList<>();
+    private void loadRegions() {
         try (Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT * FROM Regions")) {
             while (rs.next()) {
-                Location min = new Location(Bukkit.getWorld(rs.getString("world_name")),
-                        rs.getDouble("min_x"), rs.getDouble("min_y"), rs.getDouble("min_z"));
-                Location max = new Location(Bukkit.getWorld(rs.getString("world_name")),
-                        rs.getDouble("max_x"), rs.getDouble("max_y"), rs.getDouble("max_z"));
-                regions.add(new VillagerRegion(rs.getInt("id"), rs.getString("name"), min, max));
+                // The world may not be loaded yet (e.g. a Multiverse world), so regions are keyed by its stored name
+                String worldName = rs.getString("world_name");
+                World world = Bukkit.getWorld(worldName);
+                Location min = new Location(world, rs.getDouble("min_x"), rs.getDouble("min_y"), rs.getDouble("min_z"));
+                Location max = new Location(world, rs.getDouble("max_x"), rs.getDouble("max_y"), rs.getDouble("max_z"));
+                regionCatalog.put(new VillagerRegion(rs.getInt("id"), rs.getString("name"), worldName, min, max));
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return regions;
+    }
+
+    @Override
+    public List<VillagerRegion> listRegions() {
+        return regionCatalog.list();
     }
 
     @Override
     public VillagerRegion getRegion(int id) {
-        try (PreparedStatement stmt = connection.prepareStatement("SELECT * FROM Regions WHERE id = ?")) {
-            stmt.setInt(1, id);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                Location min = new Location(Bukkit.getWorld(rs.getString("world_name")),
-                        rs.getDouble("min_x"), rs.getDouble("min_y"), rs.getDouble("min_z"));
-                Location max = new Location(Bukkit.getWorld(rs.getString("world_name")),
-                        rs.getDouble("max_x"), rs.getDouble("max_y"), rs.getDouble("max_z"));
-                return new VillagerRegion(rs.getInt("id"), rs.getString("name"), min, max);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return null;
+        return regionCatalog.get(id);
     }
 
     @Override
     public VillagerRegion getRegionByName(String name) {
-        try (PreparedStatement stmt = connection.prepareStatement("SELECT * FROM Regions WHERE name = ?")) {
-            stmt.setString(1, name);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                Location min = new Location(Bukkit.getWorld(rs.getString("world_name")),
-                        rs.getDouble("min_x"), rs.getDouble("min_y"), rs.getDouble("min_z"));
-                Location max = new Location(Bukkit.getWorld(rs.getString("world_name")),
-                        rs.getDouble("max_x"), rs.getDouble("max_y"), rs.getDouble("max_z"));
-                return new VillagerRegion(rs.getInt("id"), rs.getString("name"), min, max);
+        return regionCatalog.getByName(name);
+    }
+
+    @Override
+    public VillagerRegion findRegion(Location location) {
+        return regionCatalog.find(location);
+    }
+
+    @Override
+    public List<RegionCoverage.Entry> getRegionCoverage(int regionId) {
+        return regionCoverage.get(regionId);
+    }
+
+    @Override
+    public List<Trade> getTradesInRegion(int regionId) {
+        List<Trade> trades = new ArrayList<>();
+        forEachTradeInRegion(regionId, trades::add);
+        return trades;
+    }
+
+    @Override
+    public List<Trade> getTradesInRegion(int regionId, int afterId, int limit) {
+        List<Trade> trades = new ArrayList<>(Math.max(0, limit));
+        VillagerRegion region = getRegion(regionId);
+        if (region == null || region.getWorldName() == null) return trades;
+
+        try (ReaderPool.Lease reader = readers.borrow()) {
+            PreparedStatement stmt = reader.prepare(REGION_TRADES + " AND id > ? ORDER BY id LIMIT ?");
+            bindRegionBounds(stmt, region);
+            stmt.setInt(8, afterId);
+            stmt.setInt(9, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    trades.add(readTrade(rs, region.getName()));
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return null;
+        return trades;
     }
 
     @Override
-    public List<Trade> getTradesInRegion(int regionId) {
-        List<Trade> trades = new ArrayList<>();
+    public void forEachTradeInRegion(int regionId, Consumer<? super Trade> action) {
         VillagerRegion region = getRegion(regionId);
-        if (region == null) return trades;
+        if (region == null || region.getWorldName() == null) return;
 
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM Trades")) {
-            while (rs.next()) {
-                Trade trade = new Trade(rs.getInt("id"), rs.getString("villager_uuid"),
-                        EnchantmentManager.normalizeEnchantmentId(rs.getString("enchant_id_string")),
-                        rs.getInt("level"), rs.getInt("price"), rs.getString("description"), null);
-                
-                Villager villager = trade.getVillager();
-                if (villager != null && region.contains(villager.getLocation())) {
-                    trades.add(new Trade(trade.getId(), trade.getVillagerUuid(), trade.getEnchantId(), trade.getLevel(),
-                            trade.getPrice(), trade.getDescription(), region.getName()));
+        try (ReaderPool.Lease reader = readers.borrow()) {
+            PreparedStatement stmt = reader.prepare(REGION_TRADES + " ORDER BY id");
+            bindRegionBounds(stmt, region);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(readTrade(rs, region.getName()));
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return trades;
+    }
+
+    // Same block-aligned bounds as VillagerRegion.contains
+    private static void bindRegionBounds(PreparedStatement stmt, VillagerRegion region) throws SQLException {
+        stmt.setString(1, region.getWorldName());
+        stmt.setDouble(2, Math.floor(region.getMin().getX()));
+        stmt.setDouble(3, Math.floor(region.getMax().getX()) + 1.0);
+        stmt.setDouble(4, Math.floor(region.getMin().getY()));
+        stmt.setDouble(5, Math.floor(region.getMax().getY()) + 1.0);
+        stmt.setDouble(6, Math.floor(region.getMin().getZ()));
+        stmt.setDouble(7, Math.floor(region.getMax().getZ()) + 1.0);
     }
 
     @Override
-    public List<Trade> getTradesByVillager(String villagerUuid) {
+    public List<Trade> getTradesByVillager(UUID villagerId) {
         List<Trade> trades = new ArrayList<>();
-        try (PreparedStatement stmt = connection.prepareStatement("SELECT * FROM Trades WHERE villager_uuid = ?")) {
-            stmt.setString(1, villagerUuid);
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                Trade trade = new Trade(rs.getInt("id"), villagerUuid,
-                        EnchantmentManager.normalizeEnchantmentId(rs.getString("enchant_id_string")),
-                        rs.getInt("level"), rs.getInt("price"), rs.getString("description"), null);
-                
-                // Check if the trade is in any region
-                Villager villager = trade.getVillager();
-                if (villager != null) {
-                    for (VillagerRegion region : listRegions()) {
-                        // Only check regions in the same world
-                        if (region.getWorld().equals(villager.getWorld()) && region.contains(villager.getLocation())) {
-                            trades.add(new Trade(trade.getId(), trade.getVillagerUuid(), trade.getEnchantId(), trade.getLevel(),
-                                    trade.getPrice(), trade.getDescription(), region.getName()));
-                            break;
-                        }
-                    }
-                    if (!trades.contains(trade)) {
-                        trades.add(trade);
-                    }
-                } else {
-                    trades.add(trade);
+        RegionResolver regions = regionCatalog.resolver();
+        try (ReaderPool.Lease reader = readers.borrow()) {
+            PreparedStatement stmt = reader.prepare("SELECT * FROM Trades WHERE villager_uuid = ?");
+            stmt.setBytes(1, UuidBytes.toBytes(villagerId));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    trades.add(readTrade(rs, regions));
                 }
             }
         } catch (SQLException e) {
@@ -331,14 +528,38 @@ public class SQLiteDatabase implements Database {
 
     @Override
     public boolean updateRegionName(int id, String newName) {
-        try (PreparedStatement stmt = connection.prepareStatement("UPDATE Regions SET name = ? WHERE id = ?")) {
+        try {
+            PreparedStatement stmt = statements.prepare("UPDATE Regions SET name = ? WHERE id = ?");
             stmt.setString(1, newName);
             stmt.setInt(2, id);
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                regionCatalog.rename(id, newName);
+            }
             return rowsAffected > 0;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
-} 
\ No newline at end of file
+
+    public long getStatementCacheHits() {
+        return statements.hits() + readers.statementCacheHits();
+    }
+
+    public long getStatementCacheMisses() {
+        return statements.misses() + readers.statementCacheMisses();
+    }
+
+    @Override
+    public void close() {
+        logger.info("Statement cache: " + getStatementCacheHits() + " hits, " + getStatementCacheMisses() + " misses");
+        readers.close();
+        statements.close();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
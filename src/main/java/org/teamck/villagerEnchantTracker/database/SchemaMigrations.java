@@ -0,0 +1,275 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import org.teamck.villagerEnchantTracker.manager.EnchantmentManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Schema versioning on top of {@code PRAGMA user_version}.
+ * Migration {@code i} in {@link #MIGRATIONS} brings the schema to version {@code i + 1}; each one
+ * runs in its own transaction together with the version bump. Only ever append to the list.
+ */
+final class SchemaMigrations {
+    private interface Migration {
+        void apply(Statement stmt, Logger logger) throws SQLException;
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            SchemaMigrations::createTables,
+            SchemaMigrations::addTradePositions,
+            SchemaMigrations::addTradeIndexes,
+            SchemaMigrations::encodeEnchantments,
+            SchemaMigrations::storeVillagerUuidsAsBlobs
+    );
+
+    // Queries run on every search, listing or region view; none of them should scan the whole table
+    private static final List<String> HOT_QUERIES = List.of(
+            "SELECT * FROM Trades WHERE enchant_id = ?",
+            "SELECT * FROM Trades WHERE villager_uuid = ?",
+            "SELECT * FROM Trades WHERE world_name = ? AND x >= ? AND x < ? AND y >= ? AND y < ? AND z >= ? AND z < ?",
+            "UPDATE Trades SET world_name = ?, x = ?, y = ?, z = ? WHERE villager_uuid = ?"
+    );
+
+    private SchemaMigrations() {}
+
+    static void migrate(Connection connection, Logger logger) throws SQLException {
+        int version = userVersion(connection);
+        for (int target = version + 1; target <= MIGRATIONS.size(); target++) {
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                MIGRATIONS.get(target - 1).apply(stmt, logger);
+                stmt.execute("PRAGMA user_version = " + target);
+                connection.commit();
+                logger.info("Database schema migrated to version " + target);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Logs a warning for every hot query the planner answers with a full table scan.
+     */
+    static void checkQueryPlans(Connection connection, Logger logger) {
+        try {
+            for (String scan : tableScans(connection)) {
+                logger.warning("Query plan falls back to a table scan: " + scan);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to check query plans", e);
+        }
+    }
+
+    /**
+     * The hot queries the planner answers with a full table scan, each as "plan detail: query". Empty when all use an index.
+     */
+    static List<String> tableScans(Connection connection) throws SQLException {
+        List<String> scans = new ArrayList<>();
+        for (String sql : HOT_QUERIES) {
+            try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String detail = rs.getString("detail");
+                    if (detail.startsWith("SCAN ")) {
+                        scans.add(detail + ": " + sql);
+                    }
+                }
+            }
+        }
+        return scans;
+    }
+
+    private static int userVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // 1: baseline tables. IF NOT EXISTS so databases created before versioning pass through unchanged
+    private static void createTables(Statement stmt, Logger logger) throws SQLException {
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS Regions (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                name TEXT UNIQUE NOT NULL,
+                min_x REAL NOT NULL,
+                min_y REAL NOT NULL,
+                min_z REAL NOT NULL,
+                max_x REAL NOT NULL,
+                max_y REAL NOT NULL,
+                max_z REAL NOT NULL,
+                world_name TEXT NOT NULL
+            )
+        """);
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS Trades (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                villager_uuid TEXT NOT NULL,
+                enchant_id_string TEXT NOT NULL,
+                level INTEGER NOT NULL,
+                price INTEGER NOT NULL,
+                description TEXT,
+                UNIQUE(villager_uuid, enchant_id_string)
+            )
+        """);
+    }
+
+    // 2: last observed villager position, so trades resolve their region without loading the entity.
+    // Unversioned databases may already have these columns
+    private static void addTradePositions(Statement stmt, Logger logger) throws SQLException {
+        addColumnIfMissing(stmt, "Trades", "world_name", "TEXT");
+        addColumnIfMissing(stmt, "Trades", "x", "REAL");
+        addColumnIfMissing(stmt, "Trades", "y", "REAL");
+        addColumnIfMissing(stmt, "Trades", "z", "REAL");
+    }
+
+    // 3: secondary indexes. Villager lookups are already served by the UNIQUE(villager_uuid, enchant_id_string) index
+    private static void addTradeIndexes(Statement stmt, Logger logger) throws SQLException {
+        // Enchant searches filter by price and level and show the cheapest first
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_trades_enchant_price ON Trades(enchant_id_string, price, level)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_trades_price ON Trades(price)");
+        // Region listings: world equality plus a range on x
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_trades_position ON Trades(world_name, x, z)");
+    }
+
+    // 4: enchant ids move into a dictionary table and Trades references them by integer key.
+    // Stored names are normalized on the way, merging rows that only differed in spelling (latest row wins)
+    private static void encodeEnchantments(Statement stmt, Logger logger) throws SQLException {
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS Enchantments (
+                id INTEGER PRIMARY KEY,
+                name TEXT UNIQUE NOT NULL
+            )
+        """);
+        stmt.execute("CREATE TEMP TABLE enchant_alias (raw TEXT PRIMARY KEY, enchant_id INTEGER NOT NULL)");
+
+        Connection connection = stmt.getConnection();
+        List<String> rawIds = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery("SELECT DISTINCT enchant_id_string FROM Trades")) {
+            while (rs.next()) rawIds.add(rs.getString(1));
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT OR IGNORE INTO Enchantments (name) VALUES (?)");
+             PreparedStatement alias = connection.prepareStatement(
+                     "INSERT INTO enchant_alias (raw, enchant_id) SELECT ?, id FROM Enchantments WHERE name = ?")) {
+            for (String raw : rawIds) {
+                String name = EnchantmentManager.normalizeEnchantmentId(raw);
+                insert.setString(1, name);
+                insert.executeUpdate();
+                alias.setString(1, raw);
+                alias.setString(2, name);
+                alias.executeUpdate();
+            }
+        }
+
+        stmt.execute("""
+            CREATE TABLE Trades_new (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                villager_uuid TEXT NOT NULL,
+                enchant_id INTEGER NOT NULL REFERENCES Enchantments(id),
+                level INTEGER NOT NULL,
+                price INTEGER NOT NULL,
+                description TEXT,
+                world_name TEXT,
+                x REAL,
+                y REAL,
+                z REAL,
+                UNIQUE(villager_uuid, enchant_id)
+            )
+        """);
+        stmt.execute("""
+            INSERT OR REPLACE INTO Trades_new (id, villager_uuid, enchant_id, level, price, description, world_name, x, y, z)
+            SELECT t.id, t.villager_uuid, a.enchant_id, t.level, t.price, t.description, t.world_name, t.x, t.y, t.z
+            FROM Trades t JOIN enchant_alias a ON a.raw = t.enchant_id_string
+            ORDER BY t.id
+        """);
+        stmt.execute("DROP TABLE Trades");
+        stmt.execute("ALTER TABLE Trades_new RENAME TO Trades");
+        stmt.execute("DROP TABLE enchant_alias");
+
+        stmt.execute("CREATE INDEX idx_trades_enchant_price ON Trades(enchant_id, price, level)");
+        stmt.execute("CREATE INDEX idx_trades_price ON Trades(price)");
+        stmt.execute("CREATE INDEX idx_trades_position ON Trades(world_name, x, z)");
+    }
+
+    // 5: villager UUIDs as 16-byte BLOBs instead of 36-character TEXT. Conversion happens in Java since
+    // older SQLite builds have no unhex(). Rows whose UUID doesn't parse can never match an entity; older
+    // versions accepted any string on register, so they are moved to MalformedTrades rather than lost
+    private static void storeVillagerUuidsAsBlobs(Statement stmt, Logger logger) throws SQLException {
+        stmt.execute("""
+            CREATE TABLE Trades_new (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                villager_uuid BLOB NOT NULL,
+                enchant_id INTEGER NOT NULL REFERENCES Enchantments(id),
+                level INTEGER NOT NULL,
+                price INTEGER NOT NULL,
+                description TEXT,
+                world_name TEXT,
+                x REAL,
+                y REAL,
+                z REAL,
+                UNIQUE(villager_uuid, enchant_id)
+            )
+        """);
+        List<Integer> malformed = new ArrayList<>();
+        try (PreparedStatement insert = stmt.getConnection().prepareStatement("""
+                INSERT OR REPLACE INTO Trades_new (id, villager_uuid, enchant_id, level, price, description, world_name, x, y, z)
+                SELECT id, ?, enchant_id, level, price, description, world_name, x, y, z FROM Trades WHERE id = ?
+                """);
+             ResultSet rs = stmt.executeQuery("SELECT id, villager_uuid FROM Trades ORDER BY id")) {
+            while (rs.next()) {
+                UUID villagerId;
+                try {
+                    villagerId = UUID.fromString(rs.getString("villager_uuid"));
+                } catch (IllegalArgumentException e) {
+                    malformed.add(rs.getInt("id"));
+                    continue;
+                }
+                insert.setBytes(1, UuidBytes.toBytes(villagerId));
+                insert.setInt(2, rs.getInt("id"));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        stmt.execute("CREATE TABLE MalformedTrades AS SELECT * FROM Trades WHERE 0");
+        if (!malformed.isEmpty()) {
+            try (PreparedStatement keep = stmt.getConnection().prepareStatement(
+                    "INSERT INTO MalformedTrades SELECT * FROM Trades WHERE id = ?")) {
+                for (int id : malformed) {
+                    keep.setInt(1, id);
+                    keep.addBatch();
+                }
+                keep.executeBatch();
+            }
+            logger.warning(String.format("Moved %d trades with an unparseable villager UUID to MalformedTrades, ids %s",
+                    malformed.size(), malformed));
+        }
+        stmt.execute("DROP TABLE Trades");
+        stmt.execute("ALTER TABLE Trades_new RENAME TO Trades");
+
+        stmt.execute("CREATE INDEX idx_trades_enchant_price ON Trades(enchant_id, price, level)");
+        stmt.execute("CREATE INDEX idx_trades_price ON Trades(price)");
+        stmt.execute("CREATE INDEX idx_trades_position ON Trades(world_name, x, z)");
+    }
+
+    private static void addColumnIfMissing(Statement stmt, String table, String column, String type) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (rs.getString("name").equalsIgnoreCase(column)) return;
+            }
+        }
+        stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+    }
+}
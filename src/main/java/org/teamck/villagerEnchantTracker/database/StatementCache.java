@@ -0,0 +1,78 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded LRU cache of prepared statements for one connection.
+ * Statements handed out stay owned by the cache: callers must not close them, only their result sets.
+ */
+public class StatementCache implements AutoCloseable {
+    private final Connection connection;
+    private final Logger logger;
+    private final Map<String, PreparedStatement> statements;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StatementCache(Connection connection, int capacity, Logger logger) {
+        this.connection = connection;
+        this.logger = logger;
+        int maxSize = Math.max(1, capacity);
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= maxSize) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public Connection connection() { return connection; }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Returns the cached statement for {@code sql}, compiling it on first use.
+     * Parameters and batches left over from a previous (possibly failed) use are cleared.
+     */
+    public synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt != null && !stmt.isClosed()) {
+            hits.increment();
+            stmt.clearParameters();
+            stmt.clearBatch();
+            return stmt;
+        }
+        misses.increment();
+        stmt = connection.prepareStatement(sql, autoGeneratedKeys);
+        statements.put(sql, stmt);
+        return stmt;
+    }
+
+    public long hits() { return hits.sum(); }
+    public long misses() { return misses.sum(); }
+
+    @Override
+    public synchronized void close() {
+        statements.values().forEach(this::closeQuietly);
+        statements.clear();
+    }
+
+    private void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to close cached statement", e);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import org.teamck.villagerEnchantTracker.core.RegionIndex;
+import org.teamck.villagerEnchantTracker.core.Trade;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory copy of where each stored trade's villager was last seen, bucketed per world and enchant
+ * into a grid of {@link #CELL_SIZE}-block cells. Kept in step by the trade write methods.
+ * Nearest-seller lookups walk the grid outward from the origin and keep the best k in a bounded heap,
+ * stopping once no farther cell can beat the worst of them. Writers are serialized; lookups are lock-free.
+ */
+public class TradeLocationIndex {
+    private static final int CELL_SHIFT = 6;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    /**
+     * One villager's offer for one enchant, at the position stored with it. {@code worldName} is null if it was never seen.
+     */
+    public record Seller(UUID villagerId, String enchantId, int level, int price, String worldName, double x, double y, double z) {
+        double distanceSquared(double fromX, double fromY, double fromZ) {
+            double dx = x - fromX, dy = y - fromY, dz = z - fromZ;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    private static final class Bucket {
+        final Map<Long, Seller[]> cells = new ConcurrentHashMap<>();
+        // Cell bounds ever used by this bucket; they only grow, which keeps lookups correct
+        volatile int minCellX = Integer.MAX_VALUE, maxCellX = Integer.MIN_VALUE;
+        volatile int minCellZ = Integer.MAX_VALUE, maxCellZ = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Told about every seller that gains or loses an indexed position, while the index's lock is held.
+     */
+    public interface SellerListener {
+        void linked(Seller seller);
+        void unlinked(Seller seller);
+    }
+
+    private record Candidate(Seller seller, double distanceSquared) {}
+
+    private static final Comparator<Candidate> BY_DISTANCE = Comparator.comparingDouble(Candidate::distanceSquared);
+    private static final Comparator<Candidate> BY_PRICE = Comparator.comparingInt(candidate -> candidate.seller().price());
+    private static final Comparator<Candidate> BY_LEVEL = Comparator.comparingInt((Candidate candidate) -> candidate.seller().level()).reversed();
+    // Same orders as /findvillager: the chosen key first, ties fall through to the other two
+    private static final Comparator<Candidate> CLOSEST_FIRST = BY_DISTANCE.thenComparing(BY_PRICE).thenComparing(BY_LEVEL);
+    private static final Comparator<Candidate> CHEAPEST_FIRST = BY_PRICE.thenComparing(BY_LEVEL).thenComparing(BY_DISTANCE);
+    private static final Comparator<Candidate> HIGHEST_LEVEL_FIRST = BY_LEVEL.thenComparing(BY_PRICE).thenComparing(BY_DISTANCE);
+
+    // Only touched by writers, under the lock
+    private final Map<UUID, Map<String, Seller>> byVillager = new HashMap<>();
+    // world -> enchant -> cells
+    private final Map<String, Map<String, Bucket>> buckets = new ConcurrentHashMap<>();
+    // Villagers with at least one offer that has no position yet; read without the lock
+    private final Set<UUID> unpositioned = ConcurrentHashMap.newKeySet();
+    private final SellerListener listener;
+
+    public TradeLocationIndex(SellerListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Mirrors an upsert: a trade without a position keeps the one already stored for the same villager and enchant.
+     */
+    public synchronized void put(Trade trade, String enchantId) {
+        Map<String, Seller> offers = byVillager.computeIfAbsent(trade.getVillagerId(), id -> new HashMap<>());
+        Seller previous = offers.get(enchantId);
+        Seller seller;
+        if (trade.hasPosition()) {
+            seller = new Seller(trade.getVillagerId(), enchantId, trade.getLevel(), trade.getPrice(),
+                    trade.getWorldName(), trade.getX(), trade.getY(), trade.getZ());
+        } else if (previous != null) {
+            seller = new Seller(trade.getVillagerId(), enchantId, trade.getLevel(), trade.getPrice(),
+                    previous.worldName(), previous.x(), previous.y(), previous.z());
+        } else {
+            seller = new Seller(trade.getVillagerId(), enchantId, trade.getLevel(), trade.getPrice(), null, 0, 0, 0);
+        }
+        if (previous != null) unlink(previous);
+        offers.put(enchantId, seller);
+        link(seller);
+        updateUnpositioned(trade.getVillagerId(), offers);
+    }
+
+    public synchronized void remove(UUID villagerId, String enchantId) {
+        Map<String, Seller> offers = byVillager.get(villagerId);
+        if (offers == null) return;
+        Seller removed = offers.remove(enchantId);
+        if (removed != null) unlink(removed);
+        if (offers.isEmpty()) byVillager.remove(villagerId);
+        updateUnpositioned(villagerId, offers);
+    }
+
+    /**
+     * Moves every offer of a villager, like the position update on its trade rows.
+     */
+    public synchronized void move(UUID villagerId, String worldName, double x, double y, double z) {
+        Map<String, Seller> offers = byVillager.get(villagerId);
+        if (offers == null) return;
+        for (Map.Entry<String, Seller> entry : offers.entrySet()) {
+            Seller old = entry.getValue();
+            Seller moved = new Seller(villagerId, old.enchantId(), old.level(), old.price(), worldName, x, y, z);
+            unlink(old);
+            entry.setValue(moved);
+            link(moved);
+        }
+        unpositioned.remove(villagerId);
+    }
+
+    /**
+     * Whether any stored offer of the villager has never had a position, e.g. rows written before positions were recorded.
+     */
+    public boolean isMissingPosition(UUID villagerId) {
+        return unpositioned.contains(villagerId);
+    }
+
+    /**
+     * Visits every seller with a known position, holding the lock so no write interleaves.
+     */
+    public synchronized void forEachSeller(Consumer<Seller> action) {
+        for (Map<String, Seller> offers : byVillager.values()) {
+            for (Seller seller : offers.values()) {
+                if (seller.worldName() != null) {
+                    action.accept(seller);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} sellers of {@code enchantId} in {@code worldName}, closest to the given point first.
+     */
+    public List<Seller> nearest(String enchantId, String worldName, double x, double y, double z, int limit) {
+        Map<String, Bucket> byEnchant = buckets.get(worldName);
+        Bucket bucket = byEnchant != null ? byEnchant.get(enchantId) : null;
+        if (bucket == null || bucket.cells.isEmpty() || limit <= 0) return List.of();
+
+        // Max-heap on distance, so the worst of the current best is always at the head
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, CLOSEST_FIRST.reversed());
+        int originX = (int) Math.floor(x) >> CELL_SHIFT;
+        int originZ = (int) Math.floor(z) >> CELL_SHIFT;
+        int maxRing = Math.max(Math.max(Math.abs(originX - bucket.minCellX), Math.abs(bucket.maxCellX - originX)),
+                Math.max(Math.abs(originZ - bucket.minCellZ), Math.abs(bucket.maxCellZ - originZ)));
+
+        if ((2L * maxRing + 1) * (2L * maxRing + 1) > 4L * bucket.cells.size()) {
+            // Few occupied cells spread over a wide area: visiting each of them beats walking mostly empty rings
+            for (Seller[] cell : bucket.cells.values()) {
+                offer(best, cell, x, y, z, limit, CLOSEST_FIRST);
+            }
+        } else {
+            for (int ring = 0; ring <= maxRing; ring++) {
+                // Every point in this ring is at least (ring - 1) whole cells away from the origin
+                double gap = (ring - 1) * (double) CELL_SIZE;
+                if (best.size() == limit && gap > 0 && gap * gap > best.peek().distanceSquared()) break;
+                if (ring == 0) {
+                    offer(best, bucket.cells.get(RegionIndex.chunkKey(originX, originZ)), x, y, z, limit, CLOSEST_FIRST);
+                    continue;
+                }
+                for (int dx = -ring; dx <= ring; dx++) {
+                    offer(best, bucket.cells.get(RegionIndex.chunkKey(originX + dx, originZ - ring)), x, y, z, limit, CLOSEST_FIRST);
+                    offer(best, bucket.cells.get(RegionIndex.chunkKey(originX + dx, originZ + ring)), x, y, z, limit, CLOSEST_FIRST);
+                }
+                for (int dz = -ring + 1; dz < ring; dz++) {
+                    offer(best, bucket.cells.get(RegionIndex.chunkKey(originX - ring, originZ + dz)), x, y, z, limit, CLOSEST_FIRST);
+                    offer(best, bucket.cells.get(RegionIndex.chunkKey(originX + ring, originZ + dz)), x, y, z, limit, CLOSEST_FIRST);
+                }
+            }
+        }
+
+        return sorted(best, CLOSEST_FIRST);
+    }
+
+    /**
+     * Returns the best {@code limit} sellers of {@code enchantId} in {@code worldName} in the given order, ranked
+     * across every seller in the world before the cut. The distance order is {@link #nearest}; the others visit every cell.
+     */
+    public List<Seller> best(String enchantId, String worldName, double x, double y, double z, int limit, TradeQuery.Sort sort) {
+        Comparator<Candidate> order = switch (sort) {
+            case PRICE -> CHEAPEST_FIRST;
+            case LEVEL -> HIGHEST_LEVEL_FIRST;
+            default -> null;
+        };
+        if (order == null) return nearest(enchantId, worldName, x, y, z, limit);
+
+        Map<String, Bucket> byEnchant = buckets.get(worldName);
+        Bucket bucket = byEnchant != null ? byEnchant.get(enchantId) : null;
+        if (bucket == null || limit <= 0) return List.of();
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, order.reversed());
+        for (Seller[] cell : bucket.cells.values()) {
+            offer(best, cell, x, y, z, limit, order);
+        }
+        return sorted(best, order);
+    }
+
+    private static void offer(PriorityQueue<Candidate> best, Seller[] cell, double x, double y, double z, int limit,
+                              Comparator<Candidate> order) {
+        if (cell == null) return;
+        for (Seller seller : cell) {
+            Candidate candidate = new Candidate(seller, seller.distanceSquared(x, y, z));
+            if (best.size() < limit) {
+                best.add(candidate);
+            } else if (order.compare(candidate, best.peek()) < 0) {
+                best.poll();
+                best.add(candidate);
+            }
+        }
+    }
+
+    private static List<Seller> sorted(PriorityQueue<Candidate> best, Comparator<Candidate> order) {
+        List<Candidate> candidates = new ArrayList<>(best);
+        candidates.sort(order);
+        List<Seller> result = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            result.add(candidate.seller());
+        }
+        return result;
+    }
+
+    private void updateUnpositioned(UUID villagerId, Map<String, Seller> offers) {
+        for (Seller seller : offers.values()) {
+            if (seller.worldName() == null) {
+                unpositioned.add(villagerId);
+                return;
+            }
+        }
+        unpositioned.remove(villagerId);
+    }
+
+    private void link(Seller seller) {
+        if (seller.worldName() == null) return;
+        Bucket bucket = buckets.computeIfAbsent(seller.worldName(), w -> new ConcurrentHashMap<>())
+                .computeIfAbsent(seller.enchantId(), e -> new Bucket());
+        int cellX = (int) Math.floor(seller.x()) >> CELL_SHIFT;
+        int cellZ = (int) Math.floor(seller.z()) >> CELL_SHIFT;
+        bucket.cells.merge(RegionIndex.chunkKey(cellX, cellZ), new Seller[]{seller}, TradeLocationIndex::concat);
+        bucket.minCellX = Math.min(bucket.minCellX, cellX);
+        bucket.maxCellX = Math.max(bucket.maxCellX, cellX);
+        bucket.minCellZ = Math.min(bucket.minCellZ, cellZ);
+        bucket.maxCellZ = Math.max(bucket.maxCellZ, cellZ);
+        listener.linked(seller);
+    }
+
+    private void unlink(Seller seller) {
+        if (seller.worldName() == null) return;
+        Map<String, Bucket> byEnchant = buckets.get(seller.worldName());
+        Bucket bucket = byEnchant != null ? byEnchant.get(seller.enchantId()) : null;
+        if (bucket == null) return;
+        long key = RegionIndex.chunkKey((int) Math.floor(seller.x()) >> CELL_SHIFT, (int) Math.floor(seller.z()) >> CELL_SHIFT);
+        bucket.cells.computeIfPresent(key, (k, cell) -> without(cell, seller));
+        listener.unlinked(seller);
+    }
+
+    // Cells are replaced rather than modified, so a lookup never sees a half-updated array
+    private static Seller[] concat(Seller[] cell, Seller[] added) {
+        Seller[] result = Arrays.copyOf(cell, cell.length + 1);
+        result[cell.length] = added[0];
+        return result;
+    }
+
+    private static Seller[] without(Seller[] cell, Seller seller) {
+        Seller[] result = Arrays.stream(cell).filter(s -> s != seller).toArray(Seller[]::new);
+        return result.length == 0 ? null : result;
+    }
+}
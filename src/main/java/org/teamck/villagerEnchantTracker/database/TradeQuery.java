@@ -0,0 +1,216 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import org.bukkit.Location;
+import org.teamck.villagerEnchantTracker.core.VillagerRegion;
+import org.teamck.villagerEnchantTracker.manager.EnchantmentManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compound trade filter, compiled into a single SQL statement by {@link #toSql}.
+ * Unset filters don't constrain the result.
+ */
+public final class TradeQuery {
+    public enum Sort { ID, PRICE, LEVEL, DISTANCE }
+
+    private final Set<String> enchantIds;
+    private final int minLevel;
+    private final int maxLevel;
+    private final int maxPrice;
+    private final VillagerRegion region;
+    private final String worldName;
+    private final Location origin;
+    private final double maxDistance;
+    private final Sort sort;
+    private final int limit;
+
+    private TradeQuery(Builder builder) {
+        this.enchantIds = Set.copyOf(builder.enchantIds);
+        this.minLevel = builder.minLevel;
+        this.maxLevel = builder.maxLevel;
+        this.maxPrice = builder.maxPrice;
+        this.region = builder.region;
+        this.worldName = builder.worldName;
+        this.origin = builder.origin;
+        this.maxDistance = builder.maxDistance;
+        this.sort = builder.sort == Sort.DISTANCE && builder.origin == null ? Sort.ID : builder.sort;
+        this.limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Set<String> getEnchantIds() { return enchantIds; }
+    public VillagerRegion getRegion() { return region; }
+    public Sort getSort() { return sort; }
+    public int getLimit() { return limit; }
+
+    /**
+     * Builds the statement and appends its parameters to {@code params} in binding order.
+     * The position index serves world, region and distance filters; the enchant index serves the rest.
+     */
+    String toSql(List<Object> params, EnchantmentDictionary enchantments) {
+        List<String> conditions = new ArrayList<>();
+        if (!enchantIds.isEmpty()) {
+            // Enchants no trade has ever used can't match anything
+            List<Integer> keys = enchantIds.stream().map(enchantments::find).filter(id -> id >= 0).toList();
+            if (keys.isEmpty()) {
+                conditions.add("0");
+            } else {
+                conditions.add("enchant_id IN (" + String.join(", ", Collections.nCopies(keys.size(), "?")) + ")");
+                params.addAll(keys);
+            }
+        }
+        if (minLevel > 0) {
+            conditions.add("level >= ?");
+            params.add(minLevel);
+        }
+        if (maxLevel > 0) {
+            conditions.add("level <= ?");
+            params.add(maxLevel);
+        }
+        if (maxPrice > 0) {
+            conditions.add("price <= ?");
+            params.add(maxPrice);
+        }
+        if (worldName != null) {
+            conditions.add("world_name = ?");
+            params.add(worldName);
+        }
+        if (region != null) {
+            // Same block-aligned bounds as VillagerRegion.contains
+            conditions.add("world_name = ? AND x >= ? AND x < ? AND y >= ? AND y < ? AND z >= ? AND z < ?");
+            params.add(region.getWorldName());
+            params.add(Math.floor(region.getMin().getX()));
+            params.add(Math.floor(region.getMax().getX()) + 1.0);
+            params.add(Math.floor(region.getMin().getY()));
+            params.add(Math.floor(region.getMax().getY()) + 1.0);
+            params.add(Math.floor(region.getMin().getZ()));
+            params.add(Math.floor(region.getMax().getZ()) + 1.0);
+        }
+        if (origin != null && maxDistance > 0) {
+            // Bounding box first so the index narrows the rows, then the exact sphere test
+            params.add(origin.getWorld().getName());
+            params.add(origin.getX() - maxDistance);
+            params.add(origin.getX() + maxDistance);
+            params.add(origin.getZ() - maxDistance);
+            params.add(origin.getZ() + maxDistance);
+            conditions.add("world_name = ? AND x BETWEEN ? AND ? AND z BETWEEN ? AND ? AND " + distanceSquared(params) + " <= ?");
+            params.add(maxDistance * maxDistance);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM Trades");
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        switch (sort) {
+            case PRICE -> sql.append(" ORDER BY price, level DESC, id");
+            case LEVEL -> sql.append(" ORDER BY level DESC, price, id");
+            case DISTANCE -> {
+                // Villagers in other worlds or never seen go last
+                sql.append(" ORDER BY world_name IS ? DESC, ");
+                params.add(origin.getWorld().getName());
+                sql.append(distanceSquared(params)).append(", id");
+            }
+            default -> sql.append(" ORDER BY id");
+        }
+        if (limit > 0) {
+            sql.append(" LIMIT ?");
+            params.add(limit);
+        }
+        return sql.toString();
+    }
+
+    private String distanceSquared(List<Object> params) {
+        params.add(origin.getX());
+        params.add(origin.getX());
+        params.add(origin.getY());
+        params.add(origin.getY());
+        params.add(origin.getZ());
+        params.add(origin.getZ());
+        return "((x - ?) * (x - ?) + (y - ?) * (y - ?) + (z - ?) * (z - ?))";
+    }
+
+    public static final class Builder {
+        private final Set<String> enchantIds = new LinkedHashSet<>();
+        private int minLevel;
+        private int maxLevel;
+        private int maxPrice;
+        private VillagerRegion region;
+        private String worldName;
+        private Location origin;
+        private double maxDistance;
+        private Sort sort = Sort.ID;
+        private int limit;
+
+        private Builder() {}
+
+        public Builder enchant(String enchantId) {
+            enchantIds.add(EnchantmentManager.normalizeEnchantmentId(enchantId));
+            return this;
+        }
+
+        public Builder enchants(Collection<String> ids) {
+            ids.forEach(this::enchant);
+            return this;
+        }
+
+        public Builder minLevel(int level) {
+            this.minLevel = level;
+            return this;
+        }
+
+        public Builder maxLevel(int level) {
+            this.maxLevel = level;
+            return this;
+        }
+
+        public Builder maxPrice(int price) {
+            this.maxPrice = price;
+            return this;
+        }
+
+        public Builder region(VillagerRegion region) {
+            this.region = region;
+            return this;
+        }
+
+        public Builder world(String worldName) {
+            this.worldName = worldName;
+            return this;
+        }
+
+        /**
+         * Point used for distance filtering and {@link Sort#DISTANCE}.
+         */
+        public Builder origin(Location origin) {
+            this.origin = origin != null && origin.getWorld() != null ? origin.clone() : null;
+            return this;
+        }
+
+        public Builder maxDistance(double distance) {
+            this.maxDistance = distance;
+            return this;
+        }
+
+        public Builder sortBy(Sort sort) {
+            this.sort = sort;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public TradeQuery build() {
+            return new TradeQuery(this);
+        }
+    }
+}
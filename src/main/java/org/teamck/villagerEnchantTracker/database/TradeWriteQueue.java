@@ -0,0 +1,120 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import org.teamck.villagerEnchantTracker.core.Trade;
+import org.teamck.villagerEnchantTracker.manager.EnchantmentManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for trade upserts.
+ * Trades are coalesced by (villager, enchantment) and written in one transaction once
+ * {@code batchSize} trades are queued or the oldest queued trade has waited {@code flushDelayMillis}.
+ */
+public class TradeWriteQueue {
+    private final Database db;
+    private final Executor ioExecutor;
+    private final int batchSize;
+    // Runs its tasks flushDelayMillis after they are handed over
+    private final Executor flushTimer;
+    private Map<Key, Trade> pending = new LinkedHashMap<>();
+    private CompletableFuture<Boolean> pendingResult = new CompletableFuture<>();
+    // The most recently submitted batch; the writer commits batches in order, so it completes last
+    private CompletableFuture<Boolean> lastBatch = CompletableFuture.completedFuture(true);
+    // Bumped whenever a batch is taken, so a flush timer armed for an earlier batch can tell it is stale
+    private long generation;
+
+    public TradeWriteQueue(Database db, Executor ioExecutor, int batchSize, long flushDelayMillis) {
+        this(db, ioExecutor, batchSize, CompletableFuture.delayedExecutor(Math.max(0, flushDelayMillis), TimeUnit.MILLISECONDS));
+    }
+
+    // Tests pass a timer they fire by hand
+    TradeWriteQueue(Database db, Executor ioExecutor, int batchSize, Executor flushTimer) {
+        this.db = db;
+        this.ioExecutor = ioExecutor;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushTimer = flushTimer;
+    }
+
+    /**
+     * Queues a trade; the returned future completes once the batch containing it has been written.
+     */
+    public synchronized CompletableFuture<Boolean> add(Trade trade) {
+        Key key = new Key(trade.getVillagerId(), EnchantmentManager.normalizeEnchantmentId(trade.getEnchantId()));
+        Trade previous = pending.get(key);
+        pending.put(key, previous != null ? merge(previous, trade) : trade);
+
+        CompletableFuture<Boolean> result = pendingResult;
+        if (pending.size() >= batchSize) {
+            flush();
+        } else if (pending.size() == 1 && previous == null) {
+            // First trade of a new batch starts the clock
+            scheduleFlush();
+        }
+        return result;
+    }
+
+    /**
+     * Writes everything queued so far. The returned future completes when every trade queued
+     * before this call is committed, including batches already on their way to the writer.
+     */
+    public synchronized CompletableFuture<Boolean> flush() {
+        if (pending.isEmpty()) {
+            return lastBatch;
+        }
+        List<Trade> batch = List.copyOf(pending.values());
+        CompletableFuture<Boolean> result = pendingResult;
+        pending = new LinkedHashMap<>();
+        pendingResult = new CompletableFuture<>();
+        lastBatch = result;
+        generation++;
+
+        try {
+            ioExecutor.execute(() -> {
+                try {
+                    result.complete(db.addTrades(batch));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    // The later trade wins, but keeps the earlier position and description when it has none, like the upsert does
+    private static Trade merge(Trade previous, Trade trade) {
+        boolean keepPosition = !trade.hasPosition() && previous.hasPosition();
+        boolean keepDescription = trade.getDescription() == null && previous.getDescription() != null;
+        if (!keepPosition && !keepDescription) return trade;
+        Trade position = keepPosition ? previous : trade;
+        return new Trade(0, trade.getVillagerId(), trade.getEnchantId(), trade.getLevel(), trade.getPrice(),
+                keepDescription ? previous.getDescription() : trade.getDescription(), null,
+                position.getWorldName(), position.getX(), position.getY(), position.getZ());
+    }
+
+    private void scheduleFlush() {
+        long batch = generation;
+        try {
+            flushTimer.execute(() -> flushIfCurrent(batch));
+        } catch (RejectedExecutionException e) {
+            flush();
+        }
+    }
+
+    // A batch that filled up or was flushed by a reader already went out; its timer must not cut the next one short
+    private synchronized void flushIfCurrent(long batch) {
+        if (generation == batch) {
+            flush();
+        }
+    }
+
+    private record Key(UUID villagerId, String enchantId) {}
+}
@@ -0,0 +1,60 @@
+package org.teamck.villagerEnchantTracker.manager;
+
+import org.teamck.villagerEnchantTracker.core.VillagerSnapshot;
+import org.teamck.villagerEnchantTracker.manager.EnchantmentManager.EnchantmentInfo;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Which enchantments a group of librarians sells, indexed by {@link EnchantmentRegistry} ordinal.
+ * Keeps a bitset of the enchants offered at max level, so "tradeable but not yet at max level" is one ANDNOT.
+ */
+public final class EnchantmentCoverage {
+    private final EnchantmentRegistry registry;
+    private final BitSet atMaxLevel;
+
+    public EnchantmentCoverage(EnchantmentRegistry registry) {
+        this.registry = registry;
+        this.atMaxLevel = new BitSet(registry.size());
+    }
+
+    /**
+     * Records one offer; enchantments the registry doesn't know are ignored.
+     */
+    public void add(String enchantId, int level) {
+        EnchantmentRegistry.Entry entry = registry.get(enchantId);
+        if (entry == null) return;
+        if (level >= entry.maxLevel()) {
+            atMaxLevel.set(entry.ordinal());
+        }
+    }
+
+    public void add(VillagerSnapshot librarian) {
+        for (VillagerSnapshot.Offer offer : librarian.offers()) {
+            add(offer.enchantKey(), offer.level());
+        }
+    }
+
+    /**
+     * Tradeable enchantments nobody offers at max level yet.
+     */
+    public BitSet missing() {
+        BitSet missing = registry.tradeable();
+        missing.andNot(atMaxLevel);
+        return missing;
+    }
+
+    /**
+     * {@link #missing()} as the max-level infos the EVT screens show.
+     */
+    public Set<EnchantmentInfo> missingMaxLevels() {
+        BitSet missing = missing();
+        Set<EnchantmentInfo> infos = new HashSet<>(missing.cardinality() * 2);
+        for (int ordinal = missing.nextSetBit(0); ordinal >= 0; ordinal = missing.nextSetBit(ordinal + 1)) {
+            infos.add(registry.maxLevelInfo(ordinal));
+        }
+        return infos;
+    }
+}
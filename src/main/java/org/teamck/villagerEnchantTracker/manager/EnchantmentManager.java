@@ -1,22 +1,43 @@
 package org.teamck.villagerEnchantTracker.manager;
 
+import io.papermc.paper.event.server.ServerResourcesReloadedEvent;
 import org.bukkit.enchantments.Enchantment;
-import org.bukkit.NamespacedKey;
-import org.bukkit.entity.Villager;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.EnchantmentStorageMeta;
-import org.bukkit.Material;
-import org.bukkit.plugin.java.JavaPlugin;
-import org.teamck.villagerEnchantTracker.core.VillagerEnchantTracker;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.teamck.villagerEnchantTracker.core.VillagerSnapshot;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class EnchantmentManager {
-    private static final VillagerEnchantTracker plugin = JavaPlugin.getPlugin(VillagerEnchantTracker.class);
+    private static volatile EnchantmentRegistry registry;
+
+    /**
+     * Rebuilds the enchantment snapshot; called on enable and whenever datapacks are reloaded.
+     */
+    public static void reloadRegistry() {
+        registry = EnchantmentRegistry.capture();
+    }
+
+    public static EnchantmentRegistry getRegistry() {
+        EnchantmentRegistry current = registry;
+        if (current == null) {
+            reloadRegistry();
+            current = registry;
+        }
+        return current;
+    }
+
+    public static class ReloadListener implements Listener {
+        @EventHandler
+        public void onResourcesReloaded(ServerResourcesReloadedEvent event) {
+            reloadRegistry();
+        }
+    }
 
     // 기본 Enchantment 관리 메서드
     public static Enchantment getEnchant(String enchantId) {
-        return Enchantment.getByKey(NamespacedKey.minecraft(normalizeEnchantmentId(enchantId).replace("minecraft:", "")));
+        EnchantmentRegistry.Entry entry = getRegistry().get(enchantId);
+        return entry != null ? entry.enchantment() : null;
     }
 
     public static boolean isValidLevel(Enchantment enchant, int level) {
@@ -24,58 +45,18 @@ public class EnchantmentManager {
     }
 
     public static List<String> getAllEnchantIds() {
-        return Arrays.stream(Enchantment.values())
-                .map(enchant -> normalizeEnchantmentId("minecraft:" + enchant.getKey().getKey()))
-                .collect(Collectors.toList());
+        return getRegistry().ids();
     }
 
     // EVT 통합 관련 메서드
-    public static Set<EnchantmentInfo> getAllMaxLevelEnchantments() {
-        Set<EnchantmentInfo> maxLevelEnchantments = new HashSet<>();
-        
-        for (Enchantment enchantment : Enchantment.values()) {
-            String name = "minecraft:" + enchantment.getKey().getKey();
-            int maxLevel = enchantment.getMaxLevel();
-            if (enchantment.isTradeable()) {
-                maxLevelEnchantments.add(new EnchantmentInfo(name, maxLevel, null));
-            }
-        }
-        
-        return maxLevelEnchantments;
-    }
-    
-    public static Set<EnchantmentInfo> getVillagerEnchantments(Villager villager) {
+    /**
+     * Turns a snapshot's offers into normalized enchantment infos; safe off the main thread.
+     */
+    public static Set<EnchantmentInfo> getEnchantments(VillagerSnapshot snapshot) {
         Set<EnchantmentInfo> enchantments = new HashSet<>();
-        
-        plugin.getLogger().info("Checking trades for villager at: " + villager.getLocation());
-        plugin.getLogger().info("Number of recipes: " + villager.getRecipes().size());
-        
-        villager.getRecipes().forEach(recipe -> {
-            ItemStack result = recipe.getResult();
-            plugin.getLogger().info("Checking recipe result: " + result.getType());
-            
-            if (result.getType() == Material.ENCHANTED_BOOK) {
-                plugin.getLogger().info("Found enchanted book");
-                if (result.getItemMeta() instanceof EnchantmentStorageMeta meta) {
-                    plugin.getLogger().info("Number of stored enchants: " + meta.getStoredEnchants().size());
-                    meta.getStoredEnchants().forEach((enchantment, level) -> {
-                        // Calculate the price from recipe ingredients
-                        int price = recipe.getIngredients().stream()
-                                .filter(i -> i.getType() == Material.EMERALD)
-                                .mapToInt(ItemStack::getAmount)
-                                .sum();
-                        
-                        String name = normalizeEnchantmentId("minecraft:" + enchantment.getKey().getKey());
-                        enchantments.add(new EnchantmentInfo(name, level, price));
-                        plugin.getLogger().info("Added enchantment: " + name + " level " + level + " price " + price);
-                    });
-                } else {
-                    plugin.getLogger().warning("ItemMeta is not EnchantmentStorageMeta");
-                }
-            }
-        });
-        
-        plugin.getLogger().info("Total enchantments found for villager: " + enchantments.size());
+        for (VillagerSnapshot.Offer offer : snapshot.offers()) {
+            enchantments.add(new EnchantmentInfo("minecraft:" + offer.enchantKey(), offer.level(), offer.price()));
+        }
         return enchantments;
     }
 
@@ -145,34 +126,23 @@ public class EnchantmentManager {
             return formatEnchantmentInfo(this);
         }
     }
-    public static Set<EnchantmentInfo> filterNewEnchants(Set<EnchantmentInfo> allMaxEnchants, Set<EnchantmentInfo> existingEnchants) {
-        Set<EnchantmentInfo> newEnchants = new HashSet<>();
-        
-        for (EnchantmentInfo maxEnchant : allMaxEnchants) {
-            boolean shouldAdd = true;
-            
-            for (EnchantmentInfo existing : existingEnchants) {
-                if (existing.canReplace(maxEnchant)) {
-                    shouldAdd = false;
-                    break;
-                }
-            }
-            
-            if (shouldAdd) {
-                newEnchants.add(maxEnchant);
-            }
-        }
-        
-        return newEnchants;
-    }
+
+    // Raw spelling -> canonical id. Canonical ids map to themselves, so every caller shares one instance per id.
+    // Bounded because user-typed input feeds it too; past the limit new spellings are normalized without caching.
+    private static final int NORMALIZED_CACHE_LIMIT = 1024;
+    private static final Map<String, String> normalizedIds = new ConcurrentHashMap<>();
 
     /**
      * Normalize any enchantment id string to the format 'minecraft:xxx'.
      * Accepts 'enchantments.minecraft.fortune', 'minecraft.fortune', 'fortune', etc.
      * Handles multiple 'minecraft:' prefixes by stripping them all before adding one back.
+     * Results are memoized and canonical, so equal ids are usually the same String instance.
      */
     public static String normalizeEnchantmentId(String id) {
         if (id == null) return null;
+        String cached = normalizedIds.get(id);
+        if (cached != null) return cached;
+
         String key = id.trim();
         if (key.startsWith("enchantments.")) {
             key = key.substring("enchantments.".length());
@@ -182,6 +152,15 @@ public class EnchantmentManager {
             key = key.substring("minecraft:".length());
         }
         key = key.toLowerCase();
-        return "minecraft:" + key;
+        String normalized = "minecraft:" + key;
+
+        if (normalizedIds.size() >= NORMALIZED_CACHE_LIMIT) {
+            String canonical = normalizedIds.get(normalized);
+            return canonical != null ? canonical : normalized;
+        }
+        String canonical = normalizedIds.putIfAbsent(normalized, normalized);
+        if (canonical == null) canonical = normalized;
+        normalizedIds.putIfAbsent(id, canonical);
+        return canonical;
     }
 } 
\ No newline at end of file
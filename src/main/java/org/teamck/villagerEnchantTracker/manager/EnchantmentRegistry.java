@@ -0,0 +1,127 @@
+package org.teamck.villagerEnchantTracker.manager;
+
+import org.bukkit.Registry;
+import org.bukkit.enchantments.Enchantment;
+import org.teamck.villagerEnchantTracker.manager.EnchantmentManager.EnchantmentInfo;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the server's enchantment registry.
+ * Every enchantment gets a dense ordinal (in id order) and its normalized id, max level and
+ * tradeable flag are read once, so lookups never touch the server registry or build keys.
+ * {@link EnchantmentManager} swaps in a new snapshot when datapacks are reloaded.
+ */
+public final class EnchantmentRegistry {
+    public record Entry(int ordinal, String id, Enchantment enchantment, int maxLevel, boolean tradeable) {}
+
+    private final Entry[] byOrdinal;
+    // Keyed by both the normalized id ("minecraft:mending") and the bare key ("mending")
+    private final Map<String, Entry> byId;
+    private final List<String> ids;
+    private final EnchantmentInfo[] maxLevelInfos;
+    private final BitSet tradeable = new BitSet();
+
+    // Entries must already be in ordinal order
+    private EnchantmentRegistry(List<Entry> entries) {
+        byOrdinal = entries.toArray(new Entry[0]);
+        maxLevelInfos = new EnchantmentInfo[byOrdinal.length];
+        Map<String, Entry> lookup = new HashMap<>();
+        List<String> allIds = new ArrayList<>(byOrdinal.length);
+        for (Entry entry : byOrdinal) {
+            int ordinal = entry.ordinal();
+            lookup.put(entry.id(), entry);
+            lookup.putIfAbsent(entry.id().substring(entry.id().indexOf(':') + 1), entry);
+            allIds.add(entry.id());
+            maxLevelInfos[ordinal] = new EnchantmentInfo(entry.id(), entry.maxLevel(), null);
+            if (entry.tradeable()) {
+                tradeable.set(ordinal);
+            }
+        }
+        byId = Map.copyOf(lookup);
+        ids = List.copyOf(allIds);
+    }
+
+    /**
+     * Reads the server's current enchantments. Call from the main thread.
+     */
+    public static EnchantmentRegistry capture() {
+        List<Enchantment> enchantments = new ArrayList<>();
+        Registry.ENCHANTMENT.forEach(enchantments::add);
+        enchantments.sort(Comparator.comparing(enchantment -> enchantment.getKey().getKey()));
+
+        List<Entry> entries = new ArrayList<>(enchantments.size());
+        for (Enchantment enchantment : enchantments) {
+            entries.add(new Entry(entries.size(), EnchantmentManager.normalizeEnchantmentId(enchantment.getKey().getKey()),
+                    enchantment, enchantment.getMaxLevel(), enchantment.isTradeable()));
+        }
+        return new EnchantmentRegistry(entries);
+    }
+
+    /**
+     * A registry of tradeable enchantments with the given max levels and no server objects behind it,
+     * for benchmarks that run without a server.
+     */
+    static EnchantmentRegistry ofMaxLevels(Map<String, Integer> maxLevels) {
+        List<String> keys = new ArrayList<>(maxLevels.keySet());
+        keys.sort(Comparator.naturalOrder());
+
+        List<Entry> entries = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            entries.add(new Entry(entries.size(), EnchantmentManager.normalizeEnchantmentId(key), null, maxLevels.get(key), true));
+        }
+        return new EnchantmentRegistry(entries);
+    }
+
+    /**
+     * Looks up an enchantment by normalized id or bare key; other spellings are normalized first.
+     */
+    public Entry get(String enchantId) {
+        if (enchantId == null) return null;
+        Entry entry = byId.get(enchantId);
+        return entry != null ? entry : byId.get(EnchantmentManager.normalizeEnchantmentId(enchantId));
+    }
+
+    public Entry get(int ordinal) {
+        return byOrdinal[ordinal];
+    }
+
+    /**
+     * Dense ordinal of the enchantment, or -1 if the server doesn't know it.
+     */
+    public int ordinal(String enchantId) {
+        Entry entry = get(enchantId);
+        return entry != null ? entry.ordinal() : -1;
+    }
+
+    public int size() {
+        return byOrdinal.length;
+    }
+
+    public List<String> ids() {
+        return ids;
+    }
+
+    /**
+     * Ordinals of the enchantments villagers can sell. Returns a copy the caller may modify.
+     */
+    public BitSet tradeable() {
+        return (BitSet) tradeable.clone();
+    }
+
+    public int tradeableCount() {
+        return tradeable.cardinality();
+    }
+
+    /**
+     * The shared max-level info of an enchantment, without a price.
+     */
+    public EnchantmentInfo maxLevelInfo(int ordinal) {
+        return maxLevelInfos[ordinal];
+    }
+}
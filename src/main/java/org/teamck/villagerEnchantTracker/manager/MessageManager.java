@@ -1,5 +1,6 @@
 package org.teamck.villagerEnchantTracker.manager;
 
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.Location;
@@ -28,6 +29,7 @@ public class MessageManager {
     private static MessageManager instance;
     private final JavaPlugin plugin;
     private final Map<String, YamlConfiguration> messages;
+    private final Map<String, Map<String, String>> enchantIdsByName = new HashMap<>();
     private static final String DEFAULT_VERSION = "0.1.0";
 
     public MessageManager(JavaPlugin plugin) {
@@ -35,6 +37,7 @@ public class MessageManager {
         this.messages = new HashMap<>();
         instance = this;
         loadLanguages();
+        buildEnchantNameIndex();
     }
 
     public static MessageManager getInstance() {
@@ -192,47 +195,50 @@ public class MessageManager {
     }
 
     public String getEnchantIdFromLocalName(String localName, String language) {
-        plugin.getLogger().info("Searching for enchantment ID for name: " + localName + " in language: " + language);
-        
-        // First try to find enchantment by localized name
-        String baseLanguage = getBaseLanguageCode(language);
-        YamlConfiguration config = messages.get(baseLanguage);
-        if (config == null) {
-            plugin.getLogger().info("Language " + baseLanguage + " not found, using English");
-            config = messages.get("en"); // Use English as default
+        if (localName == null) return null;
+
+        // First try to find enchantment by localized name, falling back to English
+        String displayKey = normalizeDisplayName(localName);
+        Map<String, String> index = enchantIdsByName.get(getBaseLanguageCode(language));
+        String found = index != null ? index.get(displayKey) : null;
+        if (found == null && index != enchantIdsByName.get("en")) {
+            Map<String, String> english = enchantIdsByName.get("en");
+            found = english != null ? english.get(displayKey) : null;
         }
+        if (found != null) return found;
 
-        // Get all enchantment entries
-        if (config.contains("enchantments")) {
-            plugin.getLogger().info("Found enchantments section in config");
-            for (String key : config.getConfigurationSection("enchantments").getKeys(false)) {
-                String value = config.getString("enchantments." + key);
-                plugin.getLogger().info("Checking key: " + key + " with value: " + value);
-                if (value != null && value.equals(localName)) {
-                    plugin.getLogger().info("Found matching enchantment: " + key);
-                    return "minecraft:" + key;
+        // If not found by localized name, try as enchantment ID
+        String enchantId = EnchantmentManager.normalizeEnchantmentId(localName);
+        return EnchantmentManager.getEnchant(enchantId) != null ? enchantId : null;
+    }
+
+    // Reverse index per language: display name (lowercased, whitespace removed) -> enchant id
+    private void buildEnchantNameIndex() {
+        enchantIdsByName.clear();
+        for (Map.Entry<String, YamlConfiguration> language : messages.entrySet()) {
+            ConfigurationSection section = language.getValue().getConfigurationSection("enchantments");
+            if (section == null) continue;
+            Map<String, String> index = new HashMap<>();
+            for (String key : section.getKeys(false)) {
+                String value = section.getString(key);
+                if (value != null) {
+                    index.putIfAbsent(normalizeDisplayName(value), EnchantmentManager.normalizeEnchantmentId(key));
                 }
             }
-        } else {
-            plugin.getLogger().info("No enchantments section found in config");
-        }
-        
-        // If not found by localized name, try as enchantment ID
-        String enchantId = localName;
-        // Remove enchantments. prefix if present
-        if (enchantId.startsWith("enchantments.")) {
-            enchantId = enchantId.substring("enchantments.".length());
+            enchantIdsByName.put(language.getKey(), Map.copyOf(index));
         }
-        if (!enchantId.startsWith("minecraft:")) {
-            enchantId = "minecraft:" + enchantId;
-        }
-        if (EnchantmentManager.getEnchant(enchantId) != null) {
-            plugin.getLogger().info("Found valid enchantment ID: " + enchantId);
-            return enchantId;
+    }
+
+    private static String normalizeDisplayName(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); ) {
+            int codePoint = name.codePointAt(i);
+            if (!Character.isWhitespace(codePoint)) {
+                normalized.appendCodePoint(Character.toLowerCase(codePoint));
+            }
+            i += Character.charCount(codePoint);
         }
-        
-        plugin.getLogger().info("No matching enchantment found");
-        return null;
+        return normalized.toString();
     }
 
     public List<String> getEnchantNames(String language) {
@@ -4,29 +4,31 @@ import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitTask;
+import org.teamck.villagerEnchantTracker.core.TaskScheduler;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ParticleManager {
     private final JavaPlugin plugin;
-    private final Map<Player, Set<BukkitTask>> activeTasks;
+    private final TaskScheduler scheduler;
+    // Concurrent because on Folia each player's tasks run on that player's region thread
+    private final Map<Player, Set<TaskScheduler.Task>> activeTasks;
     private final Map<Player, Location> lineEndpoints;
 
     public ParticleManager(JavaPlugin plugin) {
         this.plugin = plugin;
-        this.activeTasks = new HashMap<>();
-        this.lineEndpoints = new HashMap<>();
+        this.scheduler = new TaskScheduler(plugin);
+        this.activeTasks = new ConcurrentHashMap<>();
+        this.lineEndpoints = new ConcurrentHashMap<>();
     }
 
     public void cancelAllParticles(Player player) {
-        Set<BukkitTask> tasks = activeTasks.get(player);
+        Set<TaskScheduler.Task> tasks = activeTasks.get(player);
         if (tasks != null) {
-            for (BukkitTask task : tasks) {
+            for (TaskScheduler.Task task : tasks) {
                 if (task != null && !task.isCancelled()) {
                     task.cancel();
                 }
@@ -37,8 +39,8 @@ public class ParticleManager {
         lineEndpoints.remove(player);
     }
 
-    private void removeTask(Player player, BukkitTask task) {
-        Set<BukkitTask> tasks = activeTasks.get(player);
+    private void removeTask(Player player, TaskScheduler.Task task) {
+        Set<TaskScheduler.Task> tasks = activeTasks.get(player);
         if (tasks != null) {
             tasks.remove(task);
             if (tasks.isEmpty()) {
@@ -57,7 +59,7 @@ public class ParticleManager {
         if (plugin.getConfig().getBoolean("particle-effects.show-pillar", true)) {
             List<Map<?, ?>> particleConfigs = plugin.getConfig().getMapList("particles");
             int interval = plugin.getConfig().getInt("particle-interval", 1);
-            BukkitTask pillarTask = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
+            TaskScheduler.Task pillarTask = scheduler.runTimer(player, () -> {
                 for (Map<?, ?> particleConfig : particleConfigs) {
                     String type = (String) particleConfig.get("type");
                     int height = (int) particleConfig.get("height");
@@ -72,7 +74,7 @@ public class ParticleManager {
                     }
                 }
             }, 0L, interval * 20L);
-            activeTasks.computeIfAbsent(player, k -> new HashSet<>()).add(pillarTask);
+            activeTasks.computeIfAbsent(player, k -> ConcurrentHashMap.newKeySet()).add(pillarTask);
             scheduleCancel(player, pillarTask, duration, false);
         }
 
@@ -81,7 +83,7 @@ public class ParticleManager {
             double lineUpdateInterval = plugin.getConfig().getDouble("particle-effects.line-update-interval", 0.1);
             int points = plugin.getConfig().getInt("particle-effects.line-points", 20);
             lineEndpoints.put(player, loc);
-            BukkitTask lineTask = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
+            TaskScheduler.Task lineTask = scheduler.runTimer(player, () -> {
                 Location currentStart = player.getLocation();
                 Location currentEnd = lineEndpoints.get(player);
                 if (currentEnd == null) return;
@@ -93,7 +95,7 @@ public class ParticleManager {
                     player.spawnParticle(Particle.END_ROD, new Location(currentStart.getWorld(), x, y, z), 1, 0, 0, 0, 0);
                 }
             }, 0L, (long)(lineUpdateInterval * 20L));
-            activeTasks.computeIfAbsent(player, k -> new HashSet<>()).add(lineTask);
+            activeTasks.computeIfAbsent(player, k -> ConcurrentHashMap.newKeySet()).add(lineTask);
             scheduleCancel(player, lineTask, duration, true);
         }
     }
@@ -108,8 +110,8 @@ public class ParticleManager {
     }
 
     // Helper to schedule task cancellation and cleanup
-    private void scheduleCancel(Player player, BukkitTask task, int duration, boolean removeLineEndpoint) {
-        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+    private void scheduleCancel(Player player, TaskScheduler.Task task, int duration, boolean removeLineEndpoint) {
+        scheduler.runLater(player, () -> {
             if (task != null && !task.isCancelled()) {
                 task.cancel();
             }
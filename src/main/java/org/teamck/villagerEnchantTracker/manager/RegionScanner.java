@@ -0,0 +1,139 @@
+package org.teamck.villagerEnchantTracker.manager;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Villager;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.teamck.villagerEnchantTracker.core.TaskScheduler;
+import org.teamck.villagerEnchantTracker.core.VillagerRegion;
+import org.teamck.villagerEnchantTracker.core.VillagerSnapshot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds librarians in regions one chunk at a time, spending at most {@code region-scan.tick-budget-ms}
+ * per tick so large scans are spread over several ticks instead of stalling one.
+ * Each chunk is read on the thread that owns it, so on Folia the chunks of one region can be scanned
+ * by several region threads; the budget then only limits how many are handed out per tick.
+ */
+public class RegionScanner {
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Region tasks have no retired callback, so a chunk whose task never runs is given up on after this long
+    private static final long STALL_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private final JavaPlugin plugin;
+    private final MessageManager messageManager;
+    private final TaskScheduler scheduler;
+
+    // The world is resolved once per scan; regions only hold its name
+    private record ChunkJob(VillagerRegion region, World world, int chunkX, int chunkZ) {}
+
+    public RegionScanner(JavaPlugin plugin, MessageManager messageManager) {
+        this.plugin = plugin;
+        this.messageManager = messageManager;
+        this.scheduler = new TaskScheduler(plugin);
+    }
+
+    /**
+     * Completes with snapshots of each region's librarians, in region order.
+     * The snapshots are taken on the thread that owns the villager, so the result can be processed anywhere.
+     * Progress is reported to the player about once a second while the scan runs. If every chunk has been handed
+     * out but some never report back within {@link #STALL_TIMEOUT_NANOS}, the scan completes with what it has.
+     */
+    public CompletableFuture<Map<VillagerRegion, List<VillagerSnapshot>>> scanLibrarians(Player player, List<VillagerRegion> regions) {
+        Map<VillagerRegion, Queue<VillagerSnapshot>> found = new LinkedHashMap<>();
+        Queue<ChunkJob> jobs = new ArrayDeque<>();
+        for (VillagerRegion region : regions) {
+            found.put(region, new ConcurrentLinkedQueue<>());
+            World world = region.getWorld();
+            if (world == null) continue;
+            for (int chunkX = region.getMinChunkX(); chunkX <= region.getMaxChunkX(); chunkX++) {
+                for (int chunkZ = region.getMinChunkZ(); chunkZ <= region.getMaxChunkZ(); chunkZ++) {
+                    jobs.add(new ChunkJob(region, world, chunkX, chunkZ));
+                }
+            }
+        }
+
+        int totalChunks = jobs.size();
+        AtomicInteger scanned = new AtomicInteger();
+        long budgetNanos = TimeUnit.MICROSECONDS.toNanos(
+                (long) (plugin.getConfig().getDouble("region-scan.tick-budget-ms", 5.0) * 1000));
+        CompletableFuture<Map<VillagerRegion, List<VillagerSnapshot>>> future = new CompletableFuture<>();
+
+        TaskScheduler.Task[] task = new TaskScheduler.Task[1];
+        task[0] = scheduler.runGlobalTimer(new Runnable() {
+            private long lastReport = System.nanoTime();
+            private long lastProgress = System.nanoTime();
+            private int lastScanned;
+
+            @Override
+            public void run() {
+                if (!player.isOnline()) {
+                    task[0].cancel();
+                    future.cancel(false);
+                    return;
+                }
+
+                long start = System.nanoTime();
+                while (!jobs.isEmpty() && System.nanoTime() - start < budgetNanos) {
+                    ChunkJob job = jobs.poll();
+                    // Unloaded chunks hold no entities, and on Folia nothing would run a task queued for them
+                    if (!job.world().isChunkLoaded(job.chunkX(), job.chunkZ())) {
+                        scanned.incrementAndGet();
+                        continue;
+                    }
+                    Location chunkOrigin = new Location(job.world(), job.chunkX() << 4, 0, job.chunkZ() << 4);
+                    scheduler.executeAt(chunkOrigin, () -> {
+                        scanChunk(job, found.get(job.region()));
+                        scanned.incrementAndGet();
+                    });
+                }
+
+                long now = System.nanoTime();
+                int done = scanned.get();
+                if (done != lastScanned) {
+                    lastScanned = done;
+                    lastProgress = now;
+                }
+
+                if (done == totalChunks) {
+                    finish();
+                } else if (jobs.isEmpty() && now - lastProgress >= STALL_TIMEOUT_NANOS) {
+                    plugin.getLogger().warning(String.format("Region scan gave up waiting for %d of %d chunks",
+                            totalChunks - done, totalChunks));
+                    finish();
+                } else if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                    lastReport = now;
+                    player.sendMessage(String.format(messageManager.getMessage("region_scan_progress", player),
+                            done, totalChunks));
+                }
+            }
+
+            // Chunk tasks that still run after this only add to queues nobody reads anymore
+            private void finish() {
+                task[0].cancel();
+                Map<VillagerRegion, List<VillagerSnapshot>> result = new LinkedHashMap<>();
+                found.forEach((region, snapshots) -> result.put(region, new ArrayList<>(snapshots)));
+                future.complete(result);
+            }
+        }, 0L, 1L);
+        return future;
+    }
+
+    private static void scanChunk(ChunkJob job, Queue<VillagerSnapshot> into) {
+        List<Villager> librarians = new ArrayList<>();
+        job.region().collectLibrarians(job.chunkX(), job.chunkZ(), librarians);
+        for (Villager librarian : librarians) {
+            into.add(VillagerSnapshot.capture(librarian));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.teamck.villagerEnchantTracker.manager;
+
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import org.bukkit.entity.Villager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.VillagerAcquireTradeEvent;
+import org.bukkit.event.entity.VillagerReplenishTradeEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.inventory.MerchantInventory;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.teamck.villagerEnchantTracker.core.TaskScheduler;
+import org.teamck.villagerEnchantTracker.core.Trade;
+import org.teamck.villagerEnchantTracker.core.VillagerSnapshot;
+import org.teamck.villagerEnchantTracker.database.AsyncDatabase;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Records enchanted-book offers automatically whenever a villager gains or restocks a trade,
+ * or a player opens its trading screen. Enabled with {@code auto-capture.enabled}.
+ */
+public class TradeCaptureListener implements Listener {
+    private final JavaPlugin plugin;
+    private final AsyncDatabase db;
+    private final TaskScheduler scheduler;
+    private final Executor worker;
+    // Last offers written per loaded villager, so restocks that change nothing don't reach the database
+    private final Map<UUID, Set<Offer>> captured = new ConcurrentHashMap<>();
+    // Villagers with a capture already scheduled for the next tick
+    private final Set<UUID> scheduled = ConcurrentHashMap.newKeySet();
+
+    private record Offer(String enchantId, int level, int price) {}
+
+    public TradeCaptureListener(JavaPlugin plugin, AsyncDatabase db, Executor worker) {
+        this.plugin = plugin;
+        this.db = db;
+        this.worker = worker;
+        this.scheduler = new TaskScheduler(plugin);
+    }
+
+    // The acquired recipe is only added to the villager after the event, so capture on the next tick
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onAcquireTrade(VillagerAcquireTradeEvent event) {
+        if (event.getEntity() instanceof Villager villager) {
+            scheduleCapture(villager);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onReplenishTrade(VillagerReplenishTradeEvent event) {
+        if (event.getEntity() instanceof Villager villager) {
+            scheduleCapture(villager);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMerchantOpen(InventoryOpenEvent event) {
+        if (event.getInventory() instanceof MerchantInventory inventory && inventory.getMerchant() instanceof Villager villager) {
+            capture(villager);
+        }
+    }
+
+    // Unloaded or dead villagers are forgotten; one seen again is written once more, which the upsert absorbs
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemove(EntityRemoveFromWorldEvent event) {
+        if (event.getEntity() instanceof Villager villager) {
+            captured.remove(villager.getUniqueId());
+        }
+    }
+
+    private void scheduleCapture(Villager villager) {
+        // A villager levelling up acquires several trades in one tick; capture it once
+        if (scheduled.add(villager.getUniqueId())) {
+            scheduler.run(villager, () -> {
+                scheduled.remove(villager.getUniqueId());
+                if (villager.isValid()) {
+                    capture(villager);
+                }
+            });
+        }
+    }
+
+    // Only the snapshot is taken on the main thread; comparing and queueing the offers happens on a worker
+    private void capture(Villager villager) {
+        VillagerSnapshot snapshot = VillagerSnapshot.capture(villager);
+        if (snapshot.offers().isEmpty()) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> record(snapshot), worker).exceptionally(ex -> {
+            plugin.getLogger().log(Level.SEVERE, "Failed to capture villager trades", ex);
+            return null;
+        });
+    }
+
+    private void record(VillagerSnapshot snapshot) {
+        Set<Offer> offers = EnchantmentManager.getEnchantments(snapshot).stream()
+                .map(info -> new Offer(info.getId(), info.getLevel(), info.getPrice()))
+                .collect(Collectors.toUnmodifiableSet());
+        if (offers.equals(captured.put(snapshot.villagerId(), offers))) {
+            return;
+        }
+
+        // No description, so a description a player entered for the same trade is kept
+        for (Offer offer : offers) {
+            db.addTrade(new Trade(snapshot.villagerId(), offer.enchantId(), offer.level(), offer.price(),
+                    null, null, snapshot.location()));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.teamck.villagerEnchantTracker.manager;
+
+import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent;
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Villager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.VillagerCareerChangeEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.teamck.villagerEnchantTracker.core.TaskScheduler;
+import org.teamck.villagerEnchantTracker.core.Trade;
+import org.teamck.villagerEnchantTracker.database.AsyncDatabase;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Villagers currently loaded in any world, kept up to date from entity and chunk events
+ * so resolving a trade's villager never goes through the server's global entity map.
+ */
+public class VillagerRegistry implements Listener {
+    private final Map<UUID, Entry> villagers = new ConcurrentHashMap<>();
+    private final AsyncDatabase db;
+
+    public VillagerRegistry(AsyncDatabase db) {
+        this.db = db;
+    }
+
+    public static final class Entry {
+        // Weak so an entity the server has dropped without an event can still be collected
+        private final WeakReference<Villager> villager;
+        private volatile Location location;
+        private volatile Villager.Profession profession;
+
+        private Entry(Villager villager) {
+            this.villager = new WeakReference<>(villager);
+            this.location = villager.getLocation();
+            this.profession = villager.getProfession();
+        }
+
+        public Villager getVillager() {
+            Villager v = villager.get();
+            return v != null && v.isValid() ? v : null;
+        }
+
+        public Location getLocation() { return location; }
+        public Villager.Profession getProfession() { return profession; }
+    }
+
+    /**
+     * Registers villagers that were loaded before the listener, e.g. after a plugin reload.
+     */
+    public void trackLoadedVillagers() {
+        // Folia doesn't allow walking a whole world's entities; there villagers are picked up as their chunks load
+        if (TaskScheduler.isFolia()) return;
+        Map<UUID, Location> backfill = new HashMap<>();
+        for (World world : Bukkit.getWorlds()) {
+            for (Villager villager : world.getEntitiesByClass(Villager.class)) {
+                track(villager, backfill);
+            }
+        }
+        backfill(backfill);
+    }
+
+    public Entry get(UUID villagerId) {
+        return villagers.get(villagerId);
+    }
+
+    public Villager getVillager(UUID villagerId) {
+        Entry entry = villagers.get(villagerId);
+        return entry != null ? entry.getVillager() : null;
+    }
+
+    public Villager.Profession getProfession(UUID villagerId) {
+        Entry entry = villagers.get(villagerId);
+        return entry != null ? entry.getProfession() : null;
+    }
+
+    /**
+     * Position of a loaded villager, or null when it isn't loaded. The live position is read and cached only
+     * on the thread that owns the villager; elsewhere (another Folia region, a database callback) the cached one is returned.
+     */
+    public Location getLocation(UUID villagerId) {
+        Entry entry = villagers.get(villagerId);
+        if (entry == null) return null;
+        Villager villager = entry.getVillager();
+        if (villager != null && TaskScheduler.ownsEntity(villager)) {
+            entry.location = villager.getLocation();
+        }
+        return entry.location;
+    }
+
+    /**
+     * Where to show a trade: the live villager if it is loaded, otherwise its last stored position.
+     */
+    public Location locate(Trade trade) {
+        Location live = getLocation(trade.getVillagerId());
+        if (live != null) return live;
+        return trade.getLocation();
+    }
+
+    private void track(Villager villager, Map<UUID, Location> backfill) {
+        Entry entry = new Entry(villager);
+        villagers.put(villager.getUniqueId(), entry);
+        // Trades stored before positions were recorded get one the first time their villager is seen
+        if (db.getDatabase().isMissingPosition(villager.getUniqueId())) {
+            backfill.put(villager.getUniqueId(), entry.getLocation());
+        }
+    }
+
+    private void track(Iterable<? extends Entity> entities) {
+        Map<UUID, Location> backfill = new HashMap<>();
+        for (Entity entity : entities) {
+            if (entity instanceof Villager villager) {
+                track(villager, backfill);
+            }
+        }
+        backfill(backfill);
+    }
+
+    private void backfill(Map<UUID, Location> positions) {
+        if (!positions.isEmpty()) {
+            db.updateVillagerPositions(positions);
+        }
+    }
+
+    private void untrack(Entity entity) {
+        if (entity instanceof Villager) {
+            villagers.remove(entity.getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityAdd(EntityAddToWorldEvent event) {
+        track(List.of(event.getEntity()));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemove(EntityRemoveFromWorldEvent event) {
+        untrack(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        track(event.getEntities());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        event.getEntities().forEach(this::untrack);
+    }
+
+    // Entities usually load after their chunk (EntitiesLoadEvent), but chunks whose entities are already present carry them here
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        Chunk chunk = event.getChunk();
+        if (chunk.isEntitiesLoaded()) {
+            track(Arrays.asList(chunk.getEntities()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        Chunk chunk = event.getChunk();
+        if (chunk.isEntitiesLoaded()) {
+            for (Entity entity : chunk.getEntities()) {
+                untrack(entity);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onCareerChange(VillagerCareerChangeEvent event) {
+        Villager villager = event.getEntity();
+        villagers.computeIfAbsent(villager.getUniqueId(), id -> new Entry(villager)).profession = event.getProfession();
+    }
+}
@@ -0,0 +1,186 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaMigrationsTest {
+    private static final Logger LOGGER = Logger.getLogger(SchemaMigrationsTest.class.getName());
+    private static final String VILLAGER_A = "11111111-2222-3333-4444-555555555555";
+    private static final String VILLAGER_B = "aaaaaaaa-bbbb-cccc-dddd-eeeeeeeeeeee";
+
+    private Connection connection;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void hotQueriesUseIndexes() throws SQLException {
+        SchemaMigrations.migrate(connection, LOGGER);
+        assertEquals(List.of(), SchemaMigrations.tableScans(connection));
+    }
+
+    @Test
+    void migratingAgainChangesNothing() throws SQLException {
+        SchemaMigrations.migrate(connection, LOGGER);
+        int version = userVersion();
+        assertTrue(version > 0);
+        SchemaMigrations.migrate(connection, LOGGER);
+        assertEquals(version, userVersion());
+    }
+
+    @Test
+    void baselineTradesKeepPositionsAndDescriptions() throws SQLException {
+        createBaseline();
+        insertBaseline(1, VILLAGER_A, "minecraft:mending", 1, 10, "by the well", "world", 1.5, 64.0, -2.5);
+        insertBaseline(2, VILLAGER_B, "minecraft:fortune", 3, 20, null, null, null, null, null);
+
+        SchemaMigrations.migrate(connection, LOGGER);
+
+        assertEquals(List.of(
+                "1|1|10|by the well|world|1.5|64.0|-2.5",
+                "2|3|20|null|null|null|null|null"
+        ), rows("SELECT id, level, price, description, world_name, x, y, z FROM Trades ORDER BY id"));
+    }
+
+    @Test
+    void enchantSpellingsMergeIntoOneDictionaryId() throws SQLException {
+        createBaseline();
+        insertBaseline(1, VILLAGER_A, "minecraft:mending", 1, 10, "old", "world", 1.0, 64.0, 1.0);
+        // Same trade under another spelling; the later row wins
+        insertBaseline(2, VILLAGER_A, "MENDING", 1, 8, "new", "world", 2.0, 64.0, 2.0);
+        insertBaseline(3, VILLAGER_B, " minecraft:FORTUNE", 3, 20, null, null, null, null, null);
+        insertBaseline(4, VILLAGER_B, "minecraft:minecraft:sharpness", 5, 30, "sharp", "world_nether", -7.5, 40.0, 3.25);
+        insertBaseline(5, VILLAGER_A, "sharpness", 4, 25, null, "world", 0.0, 70.0, 0.0);
+
+        SchemaMigrations.migrate(connection, LOGGER);
+
+        assertEquals(List.of("minecraft:fortune", "minecraft:mending", "minecraft:sharpness"),
+                rows("SELECT name FROM Enchantments ORDER BY name"));
+        assertEquals(List.of(
+                "2|minecraft:mending|1|8|new|world|2.0|64.0|2.0",
+                "3|minecraft:fortune|3|20|null|null|null|null|null",
+                "4|minecraft:sharpness|5|30|sharp|world_nether|-7.5|40.0|3.25",
+                "5|minecraft:sharpness|4|25|null|world|0.0|70.0|0.0"
+        ), rows("""
+                SELECT t.id, e.name, t.level, t.price, t.description, t.world_name, t.x, t.y, t.z
+                FROM Trades t JOIN Enchantments e ON e.id = t.enchant_id ORDER BY t.id
+                """));
+    }
+
+    @Test
+    void villagerUuidsBecomeBlobsAndMalformedOnesAreKept() throws SQLException {
+        createBaseline();
+        insertBaseline(1, VILLAGER_A, "minecraft:mending", 1, 10, "by the well", "world", 1.5, 64.0, -2.5);
+        insertBaseline(2, VILLAGER_B, "minecraft:fortune", 3, 20, null, "world", 8.0, 70.0, 9.0);
+        insertBaseline(3, "not-a-uuid", "minecraft:sharpness", 5, 30, "typed by hand", "world", 0.0, 64.0, 0.0);
+
+        SchemaMigrations.migrate(connection, LOGGER);
+
+        List<UUID> villagers = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT villager_uuid FROM Trades ORDER BY id")) {
+            while (rs.next()) {
+                byte[] bytes = rs.getBytes(1);
+                assertEquals(16, bytes.length);
+                villagers.add(UuidBytes.fromBytes(bytes));
+            }
+        }
+        assertEquals(List.of(UUID.fromString(VILLAGER_A), UUID.fromString(VILLAGER_B)), villagers);
+        assertEquals(List.of(
+                "1|1|10|by the well|world|1.5|64.0|-2.5",
+                "2|3|20|null|world|8.0|70.0|9.0"
+        ), rows("SELECT id, level, price, description, world_name, x, y, z FROM Trades ORDER BY id"));
+        assertEquals(List.of("3|not-a-uuid|minecraft:sharpness|5|30|typed by hand|world|0.0|64.0|0.0"), rows("""
+                SELECT m.id, m.villager_uuid, e.name, m.level, m.price, m.description, m.world_name, m.x, m.y, m.z
+                FROM MalformedTrades m JOIN Enchantments e ON e.id = m.enchant_id
+                """));
+    }
+
+    // Schema of databases created before versioning, with the position columns some of them already had
+    private void createBaseline() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE Trades (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    villager_uuid TEXT NOT NULL,
+                    enchant_id_string TEXT NOT NULL,
+                    level INTEGER NOT NULL,
+                    price INTEGER NOT NULL,
+                    description TEXT,
+                    world_name TEXT,
+                    x REAL,
+                    y REAL,
+                    z REAL,
+                    UNIQUE(villager_uuid, enchant_id_string)
+                )
+            """);
+        }
+        assertEquals(0, userVersion());
+    }
+
+    private void insertBaseline(int id, String villagerUuid, String enchantId, int level, int price, String description,
+                                String world, Double x, Double y, Double z) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "INSERT INTO Trades (id, villager_uuid, enchant_id_string, level, price, description, world_name, x, y, z) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            stmt.setInt(1, id);
+            stmt.setString(2, villagerUuid);
+            stmt.setString(3, enchantId);
+            stmt.setInt(4, level);
+            stmt.setInt(5, price);
+            stmt.setString(6, description);
+            stmt.setString(7, world);
+            stmt.setObject(8, x);
+            stmt.setObject(9, y);
+            stmt.setObject(10, z);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Each row as its columns joined with '|', nulls spelled "null"
+    private List<String> rows(String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= columns; i++) {
+                    if (i > 1) row.append('|');
+                    row.append(rs.getObject(i));
+                }
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+
+    private int userVersion() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import org.junit.jupiter.api.Test;
+import org.teamck.villagerEnchantTracker.core.Trade;
+import org.teamck.villagerEnchantTracker.database.TradeLocationIndex.Seller;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeLocationIndexTest {
+    private static final String MENDING = "minecraft:mending";
+    private static final String FORTUNE = "minecraft:fortune";
+
+    private final TradeLocationIndex index = new TradeLocationIndex(new TradeLocationIndex.SellerListener() {
+        @Override
+        public void linked(Seller seller) {}
+
+        @Override
+        public void unlinked(Seller seller) {}
+    });
+    private final List<Seller> all = new ArrayList<>();
+
+    @Test
+    void nearestMatchesAFullSortWhenDense() {
+        // A few hundred blocks across: lookups walk the rings
+        checkAgainstFullSort(300);
+    }
+
+    @Test
+    void nearestMatchesAFullSortWhenSparse() {
+        // Thousands of blocks across: lookups visit the occupied cells instead
+        checkAgainstFullSort(5000);
+    }
+
+    @Test
+    void closerSellerInTheNextCellBeatsOneInTheOriginCell() {
+        // Filler far above the origin makes the grid dense enough for the ring walk
+        for (int cx = -2; cx <= 2; cx++) {
+            for (int cz = -2; cz <= 2; cz++) {
+                put(UUID.randomUUID(), MENDING, 1, 10, "world", cx * 64 + 32, 1000, cz * 64 + 32);
+            }
+        }
+        put(UUID.randomUUID(), MENDING, 1, 10, "world", 0, 64, 0);
+        UUID nextCell = put(UUID.randomUUID(), MENDING, 1, 10, "world", 64.1, 64, 0);
+
+        // The origin cell's seller is 63.9 away, under one cell width, so ring 1 must still be visited
+        List<Seller> nearest = index.nearest(MENDING, "world", 63.9, 64, 0, 1);
+
+        assertEquals(List.of(nextCell), villagers(nearest));
+    }
+
+    @Test
+    void bestRanksEveryCellByPriceAndLevel() {
+        Random random = new Random(7);
+        for (int i = 0; i < 400; i++) {
+            put(UUID.randomUUID(), MENDING, 1 + random.nextInt(5), 1 + random.nextInt(64), "world",
+                    random.nextInt(4000) - 2000, 64, random.nextInt(4000) - 2000);
+        }
+        double x = 120, y = 64, z = -75;
+
+        for (int limit : new int[]{1, 5, 25}) {
+            assertEquals(villagers(fullSort(MENDING, "world", byPrice(x, y, z), limit)),
+                    villagers(index.best(MENDING, "world", x, y, z, limit, TradeQuery.Sort.PRICE)));
+            assertEquals(villagers(fullSort(MENDING, "world", byLevel(x, y, z), limit)),
+                    villagers(index.best(MENDING, "world", x, y, z, limit, TradeQuery.Sort.LEVEL)));
+            assertEquals(villagers(fullSort(MENDING, "world", byDistance(x, y, z), limit)),
+                    villagers(index.best(MENDING, "world", x, y, z, limit, TradeQuery.Sort.DISTANCE)));
+        }
+    }
+
+    @Test
+    void moveAndRemoveChangeTheResult() {
+        UUID near = put(UUID.randomUUID(), MENDING, 1, 10, "world", 10, 64, 10);
+        UUID far = put(UUID.randomUUID(), MENDING, 1, 10, "world", 500, 64, 500);
+        put(UUID.randomUUID(), MENDING, 1, 10, "world_nether", 0, 64, 0);
+
+        assertEquals(List.of(near), villagers(index.nearest(MENDING, "world", 0, 64, 0, 1)));
+
+        index.move(near, "world", 2000, 64, 2000);
+        assertEquals(List.of(far, near), villagers(index.nearest(MENDING, "world", 0, 64, 0, 5)));
+
+        index.remove(far, MENDING);
+        assertEquals(List.of(near), villagers(index.nearest(MENDING, "world", 0, 64, 0, 5)));
+
+        index.move(near, "world_nether", 1, 64, 1);
+        assertEquals(List.of(), villagers(index.nearest(MENDING, "world", 0, 64, 0, 5)));
+    }
+
+    @Test
+    void tradesWithoutAPositionAreTrackedUntilMoved() {
+        UUID villager = UUID.randomUUID();
+        index.put(new Trade(0, villager, MENDING, 1, 10, null, null, null, 0, 0, 0), MENDING);
+        assertTrue(index.isMissingPosition(villager));
+        assertEquals(List.of(), index.nearest(MENDING, "world", 0, 64, 0, 5));
+
+        index.move(villager, "world", 5, 64, 5);
+        assertFalse(index.isMissingPosition(villager));
+        assertEquals(List.of(villager), villagers(index.nearest(MENDING, "world", 0, 64, 0, 5)));
+    }
+
+    private void checkAgainstFullSort(int spread) {
+        Random random = new Random(spread);
+        for (int i = 0; i < 600; i++) {
+            put(UUID.randomUUID(), random.nextBoolean() ? MENDING : FORTUNE, 1 + random.nextInt(5), 1 + random.nextInt(64),
+                    random.nextInt(4) == 0 ? "world_nether" : "world",
+                    random.nextDouble() * spread - spread / 2.0, 40 + random.nextDouble() * 40, random.nextDouble() * spread - spread / 2.0);
+        }
+        for (int i = 0; i < 50; i++) {
+            double x = random.nextDouble() * spread * 1.5 - spread * 0.75;
+            double y = 64;
+            double z = random.nextDouble() * spread * 1.5 - spread * 0.75;
+            for (int limit : new int[]{1, 3, 10, 40}) {
+                assertEquals(villagers(fullSort(MENDING, "world", byDistance(x, y, z), limit)),
+                        villagers(index.nearest(MENDING, "world", x, y, z, limit)));
+            }
+        }
+    }
+
+    private UUID put(UUID villager, String enchantId, int level, int price, String world, double x, double y, double z) {
+        index.put(new Trade(0, villager, enchantId, level, price, null, null, world, x, y, z), enchantId);
+        all.add(new Seller(villager, enchantId, level, price, world, x, y, z));
+        return villager;
+    }
+
+    // Reference answer: every seller of the enchant in the world, sorted, then cut; ignores later moves and removals
+    private List<Seller> fullSort(String enchantId, String world, Comparator<Seller> order, int limit) {
+        return all.stream()
+                .filter(seller -> seller.enchantId().equals(enchantId) && seller.worldName().equals(world))
+                .sorted(order)
+                .limit(limit)
+                .toList();
+    }
+
+    private static Comparator<Seller> byDistance(double x, double y, double z) {
+        return Comparator.comparingDouble((Seller seller) -> seller.distanceSquared(x, y, z))
+                .thenComparingInt(Seller::price)
+                .thenComparing(Comparator.comparingInt(Seller::level).reversed());
+    }
+
+    private static Comparator<Seller> byPrice(double x, double y, double z) {
+        return Comparator.comparingInt(Seller::price)
+                .thenComparing(Comparator.comparingInt(Seller::level).reversed())
+                .thenComparingDouble(seller -> seller.distanceSquared(x, y, z));
+    }
+
+    private static Comparator<Seller> byLevel(double x, double y, double z) {
+        return Comparator.comparing(Seller::level, Comparator.reverseOrder())
+                .thenComparingInt(Seller::price)
+                .thenComparingDouble(seller -> seller.distanceSquared(x, y, z));
+    }
+
+    private static List<UUID> villagers(List<Seller> sellers) {
+        return sellers.stream().map(Seller::villagerId).toList();
+    }
+}
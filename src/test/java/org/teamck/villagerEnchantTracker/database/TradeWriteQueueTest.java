@@ -0,0 +1,156 @@
+package org.teamck.villagerEnchantTracker.database;
+
+import org.junit.jupiter.api.Test;
+import org.teamck.villagerEnchantTracker.core.Trade;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeWriteQueueTest {
+    private static final UUID VILLAGER_A = UUID.fromString("11111111-2222-3333-4444-555555555555");
+    private static final UUID VILLAGER_B = UUID.fromString("aaaaaaaa-bbbb-cccc-dddd-eeeeeeeeeeee");
+
+    private final List<List<Trade>> batches = new ArrayList<>();
+    private boolean writesSucceed = true;
+    private final ManualExecutor io = new ManualExecutor();
+    private final ManualExecutor timer = new ManualExecutor();
+
+    @Test
+    void lastUpsertForAKeyWins() {
+        TradeWriteQueue queue = new TradeWriteQueue(database(), io, 10, timer);
+        CompletableFuture<Boolean> first = queue.add(trade(VILLAGER_A, "minecraft:mending", 10));
+        CompletableFuture<Boolean> second = queue.add(trade(VILLAGER_A, "MENDING", 8));
+        queue.add(trade(VILLAGER_B, "minecraft:mending", 12));
+
+        queue.flush();
+        io.runAll();
+
+        assertEquals(1, batches.size());
+        // Keyed by the normalized id, so another spelling of the same enchant replaces the earlier trade
+        assertEquals(List.of("A MENDING 8", "B minecraft:mending 12"), describe(batches.get(0)));
+        assertSame(first, second);
+        assertTrue(first.join());
+    }
+
+    @Test
+    void sizeTriggeredFlushDisarmsTheTimer() {
+        TradeWriteQueue queue = new TradeWriteQueue(database(), io, 2, timer);
+        queue.add(trade(VILLAGER_A, "minecraft:mending", 10));
+        assertEquals(1, timer.size());
+        queue.add(trade(VILLAGER_B, "minecraft:mending", 12));
+        io.runAll();
+        assertEquals(1, batches.size());
+
+        // The next batch's first trade arms its own timer; the full batch's timer must not flush it early
+        queue.add(trade(VILLAGER_A, "minecraft:fortune", 20));
+        assertEquals(2, timer.size());
+        timer.runNext();
+        io.runAll();
+        assertEquals(1, batches.size());
+
+        timer.runNext();
+        io.runAll();
+        assertEquals(2, batches.size());
+        assertEquals(List.of("A minecraft:fortune 20"), describe(batches.get(1)));
+    }
+
+    @Test
+    void staleTimerIsIgnored() {
+        TradeWriteQueue queue = new TradeWriteQueue(database(), io, 10, timer);
+        queue.add(trade(VILLAGER_A, "minecraft:mending", 10));
+        queue.flush();
+        queue.add(trade(VILLAGER_B, "minecraft:mending", 12));
+        io.runAll();
+        assertEquals(1, batches.size());
+
+        timer.runNext();
+        io.runAll();
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void flushDrainsEverythingQueued() {
+        TradeWriteQueue queue = new TradeWriteQueue(database(), io, 2, timer);
+        CompletableFuture<Boolean> full = queue.add(trade(VILLAGER_A, "minecraft:mending", 10));
+        queue.add(trade(VILLAGER_B, "minecraft:mending", 12));
+        CompletableFuture<Boolean> partial = queue.add(trade(VILLAGER_A, "minecraft:fortune", 20));
+
+        CompletableFuture<Boolean> drained = queue.flush();
+        assertFalse(drained.isDone());
+        io.runAll();
+
+        assertTrue(drained.join());
+        assertTrue(full.join());
+        assertTrue(partial.join());
+        assertEquals(3, batches.stream().mapToInt(List::size).sum());
+        // Nothing left, so flushing again waits only on the last batch
+        assertSame(drained, queue.flush());
+    }
+
+    @Test
+    void failedBatchCompletesFalse() {
+        writesSucceed = false;
+        TradeWriteQueue queue = new TradeWriteQueue(database(), io, 10, timer);
+        CompletableFuture<Boolean> result = queue.add(trade(VILLAGER_A, "minecraft:mending", 10));
+        queue.flush();
+        io.runAll();
+
+        assertFalse(result.join());
+    }
+
+    // Records addTrades batches; nothing else is called by the queue
+    private Database database() {
+        return (Database) Proxy.newProxyInstance(Database.class.getClassLoader(), new Class<?>[]{Database.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("addTrades")) throw new UnsupportedOperationException(method.getName());
+                    @SuppressWarnings("unchecked")
+                    Collection<Trade> trades = (Collection<Trade>) args[0];
+                    batches.add(List.copyOf(trades));
+                    return writesSucceed;
+                });
+    }
+
+    private static Trade trade(UUID villagerId, String enchantId, int price) {
+        return new Trade(0, villagerId, enchantId, 1, price, null, null, "world", 0, 64, 0);
+    }
+
+    private static List<String> describe(List<Trade> batch) {
+        return batch.stream()
+                .map(trade -> (trade.getVillagerId().equals(VILLAGER_A) ? "A " : "B ") + trade.getEnchantId() + " " + trade.getPrice())
+                .toList();
+    }
+
+    // Holds tasks until the test runs them, in submission order
+    private static final class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        int size() {
+            return tasks.size();
+        }
+
+        void runNext() {
+            tasks.remove().run();
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) runNext();
+        }
+    }
+}